@@ -0,0 +1,99 @@
+package de.ostfalia.umwinf.ws16.benchmark;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.HashLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.SparseLife;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * throughput of a single generation for every engine
+ * <p>
+ * the engine is seeded again before each iteration, so patterns that settle measure the same generations in every
+ * iteration
+ *
+ * @author Henrik Drefs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdvanceBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int size;
+
+    @Param({"soup-0.1", "soup-0.35", "r-pentomino", "gosper-gun"})
+    public String pattern;
+
+    /**
+     * {@code parallel} is the bit-packed game split into bands for every thread of the fork/join pool, the unbounded
+     * engines get the same pattern in the square at the origin
+     */
+    @Param({"boolean", "bit_packed", "parallel", "sparse", "hashlife"})
+    public String engine;
+
+    @Param({"B3/S23", "B36/S23"})
+    public String rule;
+
+    private LifeEngine life;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        life = create();
+        Patterns.seed(life, pattern, size);
+    }
+
+    private LifeEngine create() {
+        Rule rule = Rule.parse(this.rule);
+        GameOfLife gol;
+        switch (engine) {
+            case "boolean":
+                gol = new GameOfLife(size, size, GameOfLife.Storage.BOOLEAN);
+                gol.setRule(rule);
+                return gol;
+            case "bit_packed":
+                gol = new GameOfLife(size, size, GameOfLife.Storage.BIT_PACKED);
+                gol.setRule(rule);
+                return gol;
+            case "parallel":
+                gol = new GameOfLife(size, size, GameOfLife.Storage.BIT_PACKED);
+                gol.setRule(rule);
+                gol.setParallelThreshold(Math.max(1, size * size / (4 * gol.getParallelism())));
+                return gol;
+            case "sparse":
+                return new SparseLife(rule);
+            case "hashlife":
+                return new HashLife(rule);
+            default:
+                throw new IllegalArgumentException("engine invalid");
+        }
+    }
+
+    @Benchmark
+    public LifeEngine advance() {
+        life.advance();
+        return life;
+    }
+
+    @Benchmark
+    public long countAlive() {
+        return life.countAlive();
+    }
+}
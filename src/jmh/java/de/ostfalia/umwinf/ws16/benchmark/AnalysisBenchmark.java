@@ -0,0 +1,57 @@
+package de.ostfalia.umwinf.ws16.benchmark;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost of cycle detection, gliders on a torus never settle, so every generation is looked up in the history
+ *
+ * @author Henrik Drefs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param({"64", "512"})
+    public int size;
+
+    @Param({"1", "100", "10000"})
+    public int keepTrack;
+
+    @Param({"BOOLEAN", "BIT_PACKED"})
+    public GameOfLife.Storage storage;
+
+    private GameOfLife gol;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        gol = new GameOfLife(size, size, storage);
+        gol.setKeepTrack(keepTrack);
+        gol.setTopology(Topology.TORUS);
+        Patterns.seed(gol, "gliders", size);
+    }
+
+    @Benchmark
+    public boolean advance() {
+        gol.advance();
+        return gol.isRepeating();
+    }
+}
@@ -0,0 +1,80 @@
+package de.ostfalia.umwinf.ws16.benchmark;
+
+import de.ostfalia.umwinf.ws16.conf.Config;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * export, import and file round trip of configurations
+ *
+ * @author Henrik Drefs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+
+    @Param({"64", "512"})
+    public int size;
+
+    @Param({"soup-0.1", "soup-0.35"})
+    public String pattern;
+
+    private GameOfLife gol;
+    private Config config;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException, JAXBException {
+        gol = new GameOfLife(size, size);
+        Patterns.seed(gol, pattern, size);
+        config = new Config(gol);
+        file = File.createTempFile("config", ".xml");
+        config.save(file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public Config export() {
+        return new Config(gol);
+    }
+
+    @Benchmark
+    public GameOfLife apply() {
+        return config.toGameOfLife();
+    }
+
+    @Benchmark
+    public File save() throws JAXBException {
+        config.save(file);
+        return file;
+    }
+
+    @Benchmark
+    public Config load() throws JAXBException {
+        return Config.load(file);
+    }
+}
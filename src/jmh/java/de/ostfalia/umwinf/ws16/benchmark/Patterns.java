@@ -0,0 +1,76 @@
+package de.ostfalia.umwinf.ws16.benchmark;
+
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+
+import java.util.Random;
+
+/**
+ * starting patterns of the benchmarks, soups use a fixed seed so runs are reproducible
+ *
+ * @author Henrik Drefs
+ */
+final class Patterns {
+
+    private static final long SEED = 42;
+
+    private static final int[][] R_PENTOMINO = {{1, 0}, {2, 0}, {0, 1}, {1, 1}, {1, 2}};
+
+    private static final int[][] GLIDER = {{1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2}};
+    /**
+     * distance of the gliders of the glider lattice, far enough to never interact
+     */
+    private static final int GLIDER_SPACING = 8;
+
+    private static final int[][] GOSPER_GUN = {
+            {24, 0}, {22, 1}, {24, 1}, {12, 2}, {13, 2}, {20, 2}, {21, 2}, {34, 2}, {35, 2}, {11, 3}, {15, 3},
+            {20, 3}, {21, 3}, {34, 3}, {35, 3}, {0, 4}, {1, 4}, {10, 4}, {16, 4}, {20, 4}, {21, 4}, {0, 5},
+            {1, 5}, {10, 5}, {14, 5}, {16, 5}, {17, 5}, {22, 5}, {24, 5}, {10, 6}, {16, 6}, {24, 6}, {11, 7},
+            {15, 7}, {12, 8}, {13, 8}};
+
+    private Patterns() {
+    }
+
+    /**
+     * sets a pattern in the square of {@code size} cells at the origin
+     *
+     * @param pattern {@code soup-<density>}, {@code r-pentomino}, {@code gosper-gun} or {@code gliders}, a lattice of
+     *                gliders moving in the same direction
+     * @throws IllegalArgumentException if the pattern is unknown
+     */
+    static void seed(LifeEngine engine, String pattern, int size) {
+        if (pattern.startsWith("soup-")) {
+            double density = Double.parseDouble(pattern.substring("soup-".length()));
+            Random random = new Random(SEED);
+            for (int y = 0; y < size; y++)
+                for (int x = 0; x < size; x++)
+                    if (random.nextDouble() < density)
+                        engine.setCell(true, x, y);
+            return;
+        }
+        switch (pattern) {
+            case "r-pentomino":
+                place(engine, R_PENTOMINO, size);
+                break;
+            case "gosper-gun":
+                place(engine, GOSPER_GUN, size);
+                break;
+            case "gliders":
+                for (int y = 0; y + GLIDER_SPACING <= size; y += GLIDER_SPACING)
+                    for (int x = 0; x + GLIDER_SPACING <= size; x += GLIDER_SPACING)
+                        for (int[] cell : GLIDER)
+                            engine.setCell(true, cell[0] + x, cell[1] + y);
+                break;
+            default:
+                throw new IllegalArgumentException("pattern invalid");
+        }
+    }
+
+    /**
+     * places cells around the center of the square
+     */
+    private static void place(LifeEngine engine, int[][] cells, int size) {
+        int offset = Math.max(0, size / 2 - 18);
+        for (int[] cell : cells)
+            engine.setCell(true, cell[0] + offset, cell[1] + offset);
+    }
+}
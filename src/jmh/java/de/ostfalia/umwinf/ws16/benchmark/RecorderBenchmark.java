@@ -0,0 +1,83 @@
+package de.ostfalia.umwinf.ws16.benchmark;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Recorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * throughput of a generation with and without recording it
+ * <p>
+ * the thread advancing the game only copies the changed rows, the recorder thread encodes and writes them. With a
+ * core to spare for it, recording every generation should cost a few percent at most.
+ *
+ * @author Henrik Drefs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecorderBenchmark {
+
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"soup-0.1", "soup-0.35"})
+    public String pattern;
+
+    @Param({"false", "true"})
+    public boolean recording;
+
+    private GameOfLife gol;
+    private Path file;
+    private Recorder recorder;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        gol = new GameOfLife(size, size);
+        Patterns.seed(gol, pattern, size);
+        if (recording) {
+            file = Files.createTempFile("recording", ".bin");
+            recorder = new Recorder(file, Recorder.DEFAULT_KEYFRAME_INTERVAL);
+            recorder.record(gol);
+        }
+    }
+
+    /**
+     * waits for the pending frames, so they do not slow down the next iteration
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (recorder == null)
+            return;
+        recorder.close();
+        recorder = null;
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public GameOfLife advance() {
+        gol.advance();
+        if (recorder != null)
+            recorder.record(gol);
+        return gol;
+    }
+}
@@ -0,0 +1,152 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.CellBounds;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * compact binary bitmap of a field: a header with magic number, version, size, topology and rule followed by the
+ * rows, each as {@code ceil(columns / 64)} longs with cell x in bit {@code x & 63} of long {@code x >> 6}
+ * <p>
+ * a field takes one bit per cell no matter how many cells are alive, rows are read and written as a stream
+ *
+ * @author Henrik Drefs
+ */
+public final class BinaryFormat {
+
+    /**
+     * "GOLB"
+     */
+    private static final int MAGIC = 0x474f4c42;
+    private static final int VERSION = 1;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * reads a field into a new game
+     *
+     * @throws IOException              if reading fails or the stream is not in this format
+     * @throws IllegalArgumentException if the size or rule is invalid
+     */
+    public static GameOfLife read(InputStream in, GameOfLife.Storage storage) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("not a binary pattern");
+        int version = data.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("version " + version + " not supported");
+        int columns = data.readInt();
+        int rows = data.readInt();
+        int topology = data.readUnsignedByte();
+        if (topology >= Topology.values().length)
+            throw new IllegalArgumentException("topology invalid");
+        Rule rule = Rule.parse(data.readUTF());
+
+        GameOfLife gol = new GameOfLife(rows, columns, storage);
+        gol.setTopology(Topology.values()[topology]);
+        gol.setRule(rule);
+        long[] row = new long[(columns + 63) >>> 6];
+        long lastMask = (columns & 63) == 0 ? -1L : (1L << columns) - 1;
+        try {
+            gol.edit(edit -> {
+                try {
+                    for (int y = 0; y < rows; y++) {
+                        for (int k = 0; k < row.length; k++)
+                            row[k] = data.readLong();
+                        if ((row[row.length - 1] & ~lastMask) != 0)
+                            throw new IllegalArgumentException("cell invalid");
+                        edit.pasteRow(row, columns, 0, y);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return gol;
+    }
+
+    /**
+     * writes the alive cells of an engine, a bounded game is written as a whole, an unbounded engine only within the
+     * bounds of its alive cells
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(LifeEngine engine, OutputStream out) throws IOException {
+        CellBounds bounds = engine.getBounds();
+        int columns = bounds == null ? 1 : bounds.getWidth();
+        int rows = bounds == null ? 1 : bounds.getHeight();
+        Topology topology = engine instanceof GameOfLife ? ((GameOfLife) engine).getTopology() : Topology.DEAD;
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(columns);
+        data.writeInt(rows);
+        data.writeByte(topology.ordinal());
+        data.writeUTF(engine.getRule().toString());
+
+        RowWriter writer = new RowWriter(data, (columns + 63) >>> 6);
+        try {
+            if (bounds != null)
+                Cells.forEachAliveByRow(engine, (x, y) -> writer.alive(x - bounds.getMinX(), y - bounds.getMinY()));
+            writer.finish(rows);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        data.flush();
+    }
+
+    /**
+     * collects alive cells given row by row into row bitmaps and writes every row once it is complete
+     */
+    private static final class RowWriter {
+        private final DataOutputStream out;
+        private final long[] row;
+        /**
+         * row collected in {@link #row}
+         */
+        private int y;
+
+        RowWriter(DataOutputStream out, int words) {
+            this.out = out;
+            row = new long[words];
+        }
+
+        void alive(int x, int y) {
+            if (y != this.y)
+                writeRowsUntil(y);
+            row[x >>> 6] |= 1L << x;
+        }
+
+        /**
+         * writes the collected row and empty rows up to row {@code y}
+         */
+        private void writeRowsUntil(int y) {
+            try {
+                for (; this.y < y; this.y++) {
+                    for (long word : row)
+                        out.writeLong(word);
+                    Arrays.fill(row, 0);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish(int rows) {
+            writeRowsUntil(rows);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+
+import java.util.Arrays;
+
+/**
+ * helpers for writing the alive cells of an engine as a stream
+ *
+ * @author Henrik Drefs
+ */
+final class Cells {
+
+    private Cells() {
+    }
+
+    /**
+     * calls the visitor for every alive cell row by row from left to right, a {@link GameOfLife} is visited directly,
+     * the cells of other engines are collected and sorted first
+     *
+     * @throws IllegalArgumentException if the population is too large to be sorted
+     */
+    static void forEachAliveByRow(LifeEngine engine, LifeEngine.CellVisitor visitor) {
+        if (engine instanceof GameOfLife) {
+            engine.forEachAlive(visitor);
+            return;
+        }
+        long alive = engine.countAlive();
+        if (alive > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("population invalid");
+        // packed with y in the upper half, with the sign bit of x flipped the lower half sorts like a signed x
+        long[] cells = new long[(int) alive];
+        int[] size = {0};
+        engine.forEachAlive((x, y) -> cells[size[0]++] = (long) y << 32 | (x ^ 0x80000000) & 0xffffffffL);
+        Arrays.sort(cells);
+        for (long cell : cells)
+            visitor.visit((int) cell ^ 0x80000000, (int) (cell >> 32));
+    }
+}
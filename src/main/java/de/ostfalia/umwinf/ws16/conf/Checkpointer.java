@@ -0,0 +1,192 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Snapshot;
+import de.ostfalia.umwinf.ws16.logic.SnapshotFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writes {@link SnapshotFile snapshots} of a running game to a directory every few generations or seconds and keeps
+ * the newest ones
+ * <p>
+ * the thread advancing the game takes a {@link Snapshot}, which is consistent and cheap, and a background thread
+ * writes it. While a checkpoint is written no further snapshot is taken. A checkpoint is written under a temporary
+ * name and renamed when complete, so a crash while writing never leaves an incomplete checkpoint behind.
+ *
+ * @author Henrik Drefs
+ */
+public class Checkpointer implements Closeable {
+
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".gols";
+
+    private final Path directory;
+    private final long generations;
+    private final long nanos;
+    private final int keep;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * checkpoint being written, {@code null} if none was started yet
+     */
+    private Future<?> pending;
+    private long lastGeneration;
+    private long lastTime = System.nanoTime();
+    /**
+     * number of the next checkpoint
+     */
+    private long sequence;
+    /**
+     * first failed write, {@code null} if all succeeded
+     */
+    private volatile IOException failure;
+
+    /**
+     * @param directory   directory of the checkpoints, created if missing
+     * @param generations generations between checkpoints, 0 for none
+     * @param millis      milliseconds between checkpoints, 0 for none
+     * @param keep        number of checkpoints kept
+     * @throws IOException              if the directory can't be created
+     * @throws IllegalArgumentException if an interval or {@code keep} is invalid
+     */
+    public Checkpointer(Path directory, long generations, long millis, int keep) throws IOException {
+        if (generations < 0 || millis < 0)
+            throw new IllegalArgumentException("interval invalid");
+        if (keep < 1)
+            throw new IllegalArgumentException("keep invalid");
+        this.directory = directory;
+        this.generations = generations;
+        nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        this.keep = keep;
+        Files.createDirectories(directory);
+        List<Path> checkpoints = list(directory);
+        sequence = checkpoints.isEmpty() ? 0 : sequenceOf(checkpoints.get(checkpoints.size() - 1)) + 1;
+    }
+
+    /**
+     * reads the newest checkpoint that can be read
+     *
+     * @return the game of the checkpoint, {@code null} if there is none
+     * @throws IOException if the directory can't be read
+     */
+    public static GameOfLife resume(Path directory, GameOfLife.Storage storage) throws IOException {
+        if (!Files.isDirectory(directory))
+            return null;
+        List<Path> checkpoints = list(directory);
+        for (int i = checkpoints.size() - 1; i >= 0; i--) {
+            try {
+                return SnapshotFile.read(checkpoints.get(i), storage);
+            } catch (IOException | IllegalArgumentException e) {
+                // damaged, try the previous one
+            }
+        }
+        return null;
+    }
+
+    /**
+     * to be called by the thread advancing the game after each advance, starts a checkpoint if one is due and no
+     * other is being written
+     */
+    public void advanced(GameOfLife gol) {
+        long generation = gol.countAdvances();
+        boolean due = generations > 0 && generation - lastGeneration >= generations
+                || nanos > 0 && System.nanoTime() - lastTime >= nanos;
+        if (due && (pending == null || pending.isDone()))
+            checkpoint(gol);
+    }
+
+    /**
+     * takes a snapshot of the game and writes it in the background, to be called by the thread advancing the game
+     */
+    public void checkpoint(GameOfLife gol) {
+        Snapshot snapshot = gol.snapshot();
+        lastGeneration = snapshot.countAdvances();
+        lastTime = System.nanoTime();
+        Path file = directory.resolve(PREFIX + String.format("%010d", sequence++) + SUFFIX);
+        pending = writer.submit(() -> write(snapshot, file));
+    }
+
+    private void write(Snapshot snapshot, Path file) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            SnapshotFile.write(snapshot, temporary);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            List<Path> checkpoints = list(directory);
+            for (int i = 0; i < checkpoints.size() - keep; i++)
+                Files.deleteIfExists(checkpoints.get(i));
+        } catch (IOException e) {
+            if (failure == null)
+                failure = e;
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // the temporary file is never read
+            }
+        }
+    }
+
+    /**
+     * @return the first failed write, {@code null} if all succeeded so far
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * waits until the pending checkpoint is written
+     *
+     * @throws IOException if a checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * @return the checkpoints of a directory, oldest first
+     */
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> checkpoints = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream)
+                if (sequenceOf(path) != -1)
+                    checkpoints.add(path);
+        }
+        checkpoints.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return checkpoints;
+    }
+
+    /**
+     * @return the number of a checkpoint, -1 if the name is not one of a checkpoint
+     */
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package de.ostfalia.umwinf.ws16.conf;
 
+import de.ostfalia.umwinf.ws16.logic.CellBounds;
 import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Topology;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -24,6 +28,14 @@ public class Config {
      */
     private int y;
     private int x;
+    /**
+     * what lies beyond the border of the field
+     */
+    private Topology topology = Topology.DEAD;
+    /**
+     * rule in B/S notation
+     */
+    private String rule = Rule.CONWAY.toString();
     /**
      * coordinates of alive cells
      */
@@ -37,15 +49,58 @@ public class Config {
         this.y = y;
     }
 
-    public Config(GameOfLife gameOfLife) {
-        this(gameOfLife.getColumnCount(), gameOfLife.getRowCount());
-        boolean[][] field = gameOfLife.getField();
-        for (int i = 0; i < field.length; i++) {
-            boolean[] row = field[i];
-            for (int j = 0; j < row.length; j++)
-                if (row[j])
-                    addPoint(j, i);
+    /**
+     * exports the alive cells of an engine, coordinates are relative to its bounds
+     */
+    public Config(LifeEngine engine) {
+        rule = engine.getRule().toString();
+        if (engine instanceof GameOfLife)
+            topology = ((GameOfLife) engine).getTopology();
+        CellBounds bounds = engine.getBounds();
+        if (bounds == null) {
+            x = 1;
+            y = 1;
+            return;
         }
+        x = bounds.getWidth();
+        y = bounds.getHeight();
+        engine.forEachAlive((cellX, cellY) -> addPoint(cellX - bounds.getMinX(), cellY - bounds.getMinY()));
+    }
+
+    /**
+     * sets the alive cells of this configuration in an engine, a game is edited at once
+     */
+    public void applyTo(LifeEngine engine) {
+        if (engine instanceof GameOfLife) {
+            ((GameOfLife) engine).edit(edit -> {
+                for (Point p : alive)
+                    edit.set(true, p.getX(), p.getY());
+            });
+            return;
+        }
+        for (Point p : alive)
+            engine.setCell(true, p.getX(), p.getY());
+    }
+
+    /**
+     * @return a new game of this configuration's size, topology and rule with its alive cells set
+     * @throws IllegalArgumentException if the rule is invalid
+     */
+    public GameOfLife toGameOfLife() {
+        return toGameOfLife(GameOfLife.Storage.BIT_PACKED);
+    }
+
+    /**
+     * @param storage how the cells of the game are stored
+     * @return a new game of this configuration's size, topology and rule with its alive cells set
+     * @throws IllegalArgumentException if the rule is invalid
+     */
+    public GameOfLife toGameOfLife(GameOfLife.Storage storage) {
+        GameOfLife gol = new GameOfLife(y, x, storage);
+        gol.setTopology(topology);
+        gol.setRule(Rule.parse(rule));
+        applyTo(gol);
+        return gol;
     }
 
     public void addPoint(int x, int y) {
@@ -70,6 +125,24 @@ public class Config {
         this.y = y;
     }
 
+    @XmlAttribute
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public void setTopology(Topology topology) {
+        this.topology = topology == null ? Topology.DEAD : topology;
+    }
+
+    @XmlAttribute
+    public String getRule() {
+        return rule;
+    }
+
+    public void setRule(String rule) {
+        this.rule = rule == null ? Rule.CONWAY.toString() : rule;
+    }
+
     @XmlElementWrapper
     @XmlElement(name = "point")
     public List<Point> getAlive() {
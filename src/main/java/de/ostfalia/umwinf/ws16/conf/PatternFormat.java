@@ -0,0 +1,156 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.SnapshotFile;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * file formats for patterns, chosen by the extension of a file
+ *
+ * @author Henrik Drefs
+ */
+public enum PatternFormat {
+    /**
+     * {@link Config} as XML, one element per alive cell
+     */
+    XML("xml", "XML-files") {
+        @Override
+        public GameOfLife read(File file, GameOfLife.Storage storage) throws IOException {
+            try {
+                return Config.load(file).toGameOfLife(storage);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void write(LifeEngine engine, File file) throws IOException {
+            try {
+                new Config(engine).save(file);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+    },
+    /**
+     * Golly's run length encoding, see {@link RleFormat}
+     */
+    RLE("rle", "RLE-files") {
+        @Override
+        public GameOfLife read(File file, GameOfLife.Storage storage) throws IOException {
+            try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.US_ASCII)) {
+                return RleFormat.read(in, storage);
+            }
+        }
+
+        @Override
+        public void write(LifeEngine engine, File file) throws IOException {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                    StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+                RleFormat.write(engine, out);
+            }
+        }
+    },
+    /**
+     * bitmap with one bit per cell, see {@link BinaryFormat}
+     */
+    BINARY("golb", "Binary patterns") {
+        @Override
+        public GameOfLife read(File file, GameOfLife.Storage storage) throws IOException {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+                return BinaryFormat.read(in, storage);
+            }
+        }
+
+        @Override
+        public void write(LifeEngine engine, File file) throws IOException {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+                BinaryFormat.write(engine, out);
+            }
+        }
+    },
+    /**
+     * game including its analysis, see {@link SnapshotFile}
+     */
+    SNAPSHOT("gols", "Snapshots") {
+        @Override
+        public GameOfLife read(File file, GameOfLife.Storage storage) throws IOException {
+            return SnapshotFile.read(file.toPath(), storage);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the engine is not a {@link GameOfLife}
+         */
+        @Override
+        public void write(LifeEngine engine, File file) throws IOException {
+            if (!(engine instanceof GameOfLife))
+                throw new IllegalArgumentException("engine invalid");
+            SnapshotFile.write((GameOfLife) engine, file.toPath());
+        }
+    };
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+    private final String description;
+
+    PatternFormat(String extension, String description) {
+        this.extension = extension;
+        this.description = description;
+    }
+
+    /**
+     * @return the extension of files in this format, without dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the format of a file by its extension
+     * @throws IllegalArgumentException if the extension is unknown
+     */
+    public static PatternFormat forFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (PatternFormat format : values())
+            if (name.endsWith("." + format.extension))
+                return format;
+        throw new IllegalArgumentException("format invalid");
+    }
+
+    /**
+     * reads a pattern into a new game
+     *
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public abstract GameOfLife read(File file, GameOfLife.Storage storage) throws IOException;
+
+    /**
+     * writes the alive cells of an engine
+     *
+     * @throws IOException if writing fails
+     */
+    public abstract void write(LifeEngine engine, File file) throws IOException;
+}
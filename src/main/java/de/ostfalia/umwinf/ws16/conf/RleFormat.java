@@ -0,0 +1,325 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.CellBounds;
+import de.ostfalia.umwinf.ws16.logic.Edit;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * run length encoded patterns as written by Golly, e.g. {@code x = 3, y = 3, rule = B3/S23} followed by
+ * {@code bo$2bo$3o!}
+ * <p>
+ * bounded fields are written with the whole field as pattern and Golly's bounded grid suffix in the rule, e.g.
+ * {@code B3/S23:T80,64} for a torus or {@code B3/S23:K80*,64} for a Klein bottle with twisted top and bottom border.
+ * Golly has no mirrored border, such fields are written as bounded plane. Cells are read and written as a stream, no
+ * list of points is created.
+ *
+ * @author Henrik Drefs
+ */
+public final class RleFormat {
+
+    /**
+     * maximum line length of the encoded cells
+     */
+    private static final int LINE_LENGTH = 70;
+
+    private RleFormat() {
+    }
+
+    /**
+     * reads a pattern into a new game, the size of the game is taken from the bounded grid suffix of the rule or from
+     * the size of the pattern, a pattern smaller than the field is centered
+     *
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static GameOfLife read(Reader in, GameOfLife.Storage storage) throws IOException {
+        Tokenizer tokens = new Tokenizer(in);
+        String header = tokens.headerLine();
+        int width = -1;
+        int height = -1;
+        String ruleText = null;
+        // the rule may contain commas, so it is the rest of the line
+        int ruleStart = header.indexOf("rule");
+        String sizes = ruleStart == -1 ? header : header.substring(0, ruleStart);
+        if (ruleStart != -1)
+            ruleText = value(header.substring(ruleStart));
+        for (String pair : sizes.split(",")) {
+            if (pair.trim().isEmpty())
+                continue;
+            String key = pair.substring(0, Math.max(0, pair.indexOf('='))).trim();
+            if (key.equals("x"))
+                width = Integer.parseInt(value(pair));
+            else if (key.equals("y"))
+                height = Integer.parseInt(value(pair));
+        }
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("header invalid");
+
+        Rule rule = Rule.CONWAY;
+        Topology topology = Topology.DEAD;
+        int columns = width;
+        int rows = height;
+        if (ruleText != null) {
+            int colon = ruleText.indexOf(':');
+            rule = Rule.parse(colon == -1 ? ruleText : ruleText.substring(0, colon));
+            if (colon != -1) {
+                String grid = ruleText.substring(colon + 1).trim().toUpperCase(Locale.ROOT);
+                switch (grid.isEmpty() ? ' ' : grid.charAt(0)) {
+                    case 'P':
+                        break;
+                    case 'T':
+                        topology = Topology.TORUS;
+                        break;
+                    case 'K':
+                        // only the top and bottom border may be twisted
+                        if (!grid.matches("K\\d+\\*,\\d+"))
+                            throw new IllegalArgumentException("grid invalid");
+                        topology = Topology.KLEIN_BOTTLE;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("grid invalid");
+                }
+                String[] dimensions = grid.substring(1).replace("*", "").split(",");
+                if (dimensions.length != 2)
+                    throw new IllegalArgumentException("grid invalid");
+                columns = Integer.parseInt(dimensions[0].trim());
+                rows = Integer.parseInt(dimensions[1].trim());
+            }
+        }
+        if (columns < width || rows < height)
+            throw new IllegalArgumentException("pattern invalid");
+
+        GameOfLife gol = new GameOfLife(Math.max(rows, 1), Math.max(columns, 1), storage);
+        gol.setTopology(topology);
+        gol.setRule(rule);
+        int left = (columns - width) / 2;
+        int top = (rows - height) / 2;
+        int patternWidth = width;
+        int patternHeight = height;
+        try {
+            gol.edit(edit -> {
+                try {
+                    readCells(tokens, edit, left, top, patternWidth, patternHeight);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return gol;
+    }
+
+    /**
+     * sets the alive cells of the pattern data, runs of alive cells at once
+     *
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if a cell lies outside the pattern
+     */
+    private static void readCells(Tokenizer tokens, Edit edit, int left, int top, int width, int height)
+            throws IOException {
+        int x = 0;
+        int y = 0;
+        for (int c = tokens.next(); c != -1 && c != '!'; c = tokens.next()) {
+            int count = 1;
+            if (c >= '0' && c <= '9') {
+                count = 0;
+                for (; c >= '0' && c <= '9'; c = tokens.next())
+                    count = count * 10 + c - '0';
+                if (c == -1)
+                    throw new IllegalArgumentException("pattern invalid");
+            }
+            if (c == '$') {
+                y += count;
+                x = 0;
+            } else if (c == 'b' || c == '.') {
+                x += count;
+            } else {
+                // every other state is alive
+                if (x + count > width || y >= height)
+                    throw new IllegalArgumentException("pattern invalid");
+                edit.fill(new CellBounds(left + x, top + y, left + x + count - 1, top + y), true);
+                x += count;
+            }
+        }
+    }
+
+    /**
+     * @return the value of a {@code key = value} pair
+     */
+    private static String value(String pair) {
+        int equals = pair.indexOf('=');
+        if (equals == -1)
+            throw new IllegalArgumentException("header invalid");
+        return pair.substring(equals + 1).trim();
+    }
+
+    /**
+     * writes the alive cells of an engine, a bounded game is written as a whole, an unbounded engine only within the
+     * bounds of its alive cells
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(LifeEngine engine, Writer out) throws IOException {
+        CellBounds bounds = engine.getBounds();
+        int width = bounds == null ? 0 : bounds.getWidth();
+        int height = bounds == null ? 0 : bounds.getHeight();
+        String rule = engine.getRule().toString();
+        if (engine instanceof GameOfLife) {
+            Topology topology = ((GameOfLife) engine).getTopology();
+            if (topology == Topology.TORUS)
+                rule += ":T" + width + "," + height;
+            else if (topology == Topology.KLEIN_BOTTLE)
+                rule += ":K" + width + "*," + height;
+            else
+                rule += ":P" + width + "," + height;
+        }
+        out.write("x = " + width + ", y = " + height + ", rule = " + rule + "\n");
+        Encoder encoder = new Encoder(out);
+        try {
+            if (bounds != null)
+                Cells.forEachAliveByRow(engine, (x, y) -> encoder.alive(x - bounds.getMinX(), y - bounds.getMinY()));
+            encoder.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * reads characters in blocks and skips comment lines and whitespace
+     */
+    private static final class Tokenizer {
+        private final Reader in;
+        private final char[] buffer = new char[1 << 16];
+        private int position;
+        private int limit;
+
+        Tokenizer(Reader in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * @return the first line that is not a comment
+         */
+        String headerLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c = read(); c != -1; c = read()) {
+                if (c == '\n' || c == '\r') {
+                    String text = line.toString().trim();
+                    line.setLength(0);
+                    if (!text.isEmpty() && !text.startsWith("#"))
+                        return text;
+                } else {
+                    line.append((char) c);
+                }
+            }
+            String text = line.toString().trim();
+            if (text.isEmpty() || text.startsWith("#"))
+                throw new IllegalArgumentException("header invalid");
+            return text;
+        }
+
+        /**
+         * @return next character that is not whitespace, -1 at the end
+         */
+        int next() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+    }
+
+    /**
+     * encodes alive cells given row by row into runs and wraps lines
+     */
+    private static final class Encoder {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+        /**
+         * position after the last written cell
+         */
+        private int x;
+        private int y;
+        /**
+         * start and length of the pending run of alive cells
+         */
+        private int runStart;
+        private int runLength;
+
+        Encoder(Writer out) {
+            this.out = out;
+        }
+
+        void alive(int x, int y) {
+            if (runLength > 0 && y == this.y && x == runStart + runLength) {
+                runLength++;
+                return;
+            }
+            flushRun();
+            if (y > this.y) {
+                token(y - this.y, '$');
+                this.y = y;
+                this.x = 0;
+            }
+            if (x > this.x)
+                token(x - this.x, 'b');
+            runStart = x;
+            runLength = 1;
+        }
+
+        private void flushRun() {
+            if (runLength == 0)
+                return;
+            token(runLength, 'o');
+            x = runStart + runLength;
+            runLength = 0;
+        }
+
+        private void token(int count, char tag) {
+            String token = count == 1 ? String.valueOf(tag) : count + String.valueOf(tag);
+            if (line.length() + token.length() > LINE_LENGTH) {
+                write(line.append('\n'));
+                line.setLength(0);
+            }
+            line.append(token);
+        }
+
+        private void write(CharSequence text) {
+            try {
+                out.append(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() {
+            flushRun();
+            token(1, '!');
+            write(line.append('\n'));
+        }
+    }
+}
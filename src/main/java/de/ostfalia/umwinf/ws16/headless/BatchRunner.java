@@ -0,0 +1,221 @@
+package de.ostfalia.umwinf.ws16.headless;
+
+import de.ostfalia.umwinf.ws16.conf.Config;
+import de.ostfalia.umwinf.ws16.logic.Census;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * main class for batches of boards without a window, e.g. parameter sweeps of random soups
+ * <p>
+ * runs the given xml configurations and {@code -soups} random soups with consecutive seeds and prints a line per
+ * board as soon as it is finished and the throughput at the end
+ * <p>
+ * with {@code -census} the objects of every static or cyclic board are counted in a {@link Census} file, which
+ * accumulates across runs, {@code -merge} adds the census files of other runs to it
+ *
+ * @author Henrik Drefs
+ */
+public class BatchRunner {
+
+    private static final long DEFAULT_GENERATIONS = 10000;
+    private static final int DEFAULT_SIZE = 64;
+    private static final double DEFAULT_DENSITY = 0.5;
+    /**
+     * most frequent objects of the census printed at the end
+     */
+    private static final int CENSUS_TOP = 20;
+
+    private static final String USAGE = "usage: BatchRunner [config.xml ...] [-soups count] [-size columns x rows]"
+            + " [-density probability] [-seed first seed] [-topology topology] [-rule B/S] [-n generations]"
+            + " [-s boolean|bit_packed] [-t threads] [-census file [-merge file ...]]";
+
+    private final List<File> configFiles = new ArrayList<>();
+    private long soups = 0;
+    private int columns = DEFAULT_SIZE;
+    private int rows = DEFAULT_SIZE;
+    private double density = DEFAULT_DENSITY;
+    private long seed = 0;
+    private Topology topology = Topology.DEAD;
+    private Rule rule = Rule.CONWAY;
+    private long generations = DEFAULT_GENERATIONS;
+    private GameOfLife.Storage storage = GameOfLife.Storage.BIT_PACKED;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path census;
+    private final List<Path> merged = new ArrayList<>();
+
+    /**
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    BatchRunner(String[] args) {
+        int i = 0;
+        for (; i < args.length && !args[i].startsWith("-"); i++)
+            configFiles.add(new File(args[i]));
+        for (; i < args.length; i += 2) {
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("value of " + args[i] + " missing");
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-soups":
+                    soups = Long.parseLong(value);
+                    if (soups < 0)
+                        throw new IllegalArgumentException("soups invalid");
+                    break;
+                case "-size":
+                    String[] size = value.toLowerCase(Locale.ROOT).split("x");
+                    if (size.length != 2)
+                        throw new IllegalArgumentException("size invalid");
+                    columns = Integer.parseInt(size[0].trim());
+                    rows = Integer.parseInt(size[1].trim());
+                    if (columns <= 0 || rows <= 0)
+                        throw new IllegalArgumentException("size invalid");
+                    break;
+                case "-density":
+                    density = Double.parseDouble(value);
+                    if (!(density >= 0 && density <= 1))
+                        throw new IllegalArgumentException("density invalid");
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "-topology":
+                    topology = Topology.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "-rule":
+                    rule = Rule.parse(value);
+                    break;
+                case "-n":
+                    generations = Long.parseLong(value);
+                    if (generations < 0)
+                        throw new IllegalArgumentException("generations invalid");
+                    break;
+                case "-s":
+                    storage = GameOfLife.Storage.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(value);
+                    if (threads <= 0)
+                        throw new IllegalArgumentException("threads invalid");
+                    break;
+                case "-census":
+                    census = Paths.get(value);
+                    break;
+                case "-merge":
+                    merged.add(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("option " + args[i] + " invalid");
+            }
+        }
+        if (!merged.isEmpty() && census == null)
+            throw new IllegalArgumentException("census missing");
+        if (configFiles.isEmpty() && soups == 0 && merged.isEmpty())
+            throw new IllegalArgumentException("no boards");
+    }
+
+    public static void main(String[] args) {
+        BatchRunner runner;
+        try {
+            runner = new BatchRunner(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            runner.run();
+        } catch (JAXBException | IOException | IllegalArgumentException e) {
+            System.err.println("run failed: " + e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
+    }
+
+    private void run() throws JAXBException, IOException, InterruptedException {
+        List<BatchSimulation.Board> configs = new ArrayList<>();
+        for (int i = 0; i < configFiles.size(); i++)
+            configs.add(BatchSimulation.Board.of(i, Config.load(configFiles.get(i))));
+        Iterator<BatchSimulation.Board> boards = new Iterator<BatchSimulation.Board>() {
+            private int config = 0;
+            private long soup = 0;
+
+            @Override
+            public boolean hasNext() {
+                return config < configs.size() || soup < soups;
+            }
+
+            @Override
+            public BatchSimulation.Board next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (config < configs.size())
+                    return configs.get(config++);
+                long id = configs.size() + soup;
+                return BatchSimulation.Board.soup(id, columns, rows, topology, rule, seed + soup++, density);
+            }
+        };
+
+        if (census == null) {
+            run(boards, null);
+            return;
+        }
+        try (Census objects = new Census(census)) {
+            for (Path path : merged)
+                objects.merge(path);
+            if (boards.hasNext())
+                run(boards, objects);
+            objects.flush();
+            System.err.printf(Locale.ROOT, "census: %d objects, %d different%n", objects.countObjects(),
+                    objects.size());
+            List<Census.Entry> entries = objects.getEntries();
+            for (Census.Entry entry : entries.subList(0, Math.min(CENSUS_TOP, entries.size())))
+                System.err.printf(Locale.ROOT, "%12d %s %s%n", entry.getCount(), entry, objects.getPattern(entry));
+        }
+    }
+
+    /**
+     * @param census counts the objects of the boards, {@code null} for none
+     */
+    private void run(Iterator<BatchSimulation.Board> boards, Census census) throws IOException,
+            InterruptedException {
+        System.out.println("board,seed,result,lifespan,population,period");
+        long[] count = {0};
+        long start = System.nanoTime();
+        try (BatchSimulation batch = new BatchSimulation(threads, generations, storage, census != null)) {
+            batch.run(boards, outcome -> {
+                count[0]++;
+                BatchSimulation.Board board = outcome.getBoard();
+                System.out.printf(Locale.ROOT, "%d,%d,%s,%d,%d,%d%n", board.getId(), board.getSeed(),
+                        outcome.getResult().name().toLowerCase(Locale.ROOT), outcome.getLifespan(),
+                        outcome.getPopulation(), outcome.getCyclicPeriod());
+                if (census != null) {
+                    try {
+                        census.add(outcome.getComponents());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "%d boards in %.1f s, %.1f boards/sec, %.1f boards/sec per thread%n", count[0],
+                seconds, count[0] / seconds, count[0] / seconds / threads);
+    }
+}
@@ -0,0 +1,304 @@
+package de.ostfalia.umwinf.ws16.headless;
+
+import de.ostfalia.umwinf.ws16.conf.Config;
+import de.ostfalia.umwinf.ws16.logic.Classifier;
+import de.ostfalia.umwinf.ws16.logic.Component;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Soup;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * runs many boards, e.g. random soups of a parameter sweep, until each is extinct, static, cyclic or reaches the
+ * generation cap
+ * <p>
+ * every board is advanced sequentially by one worker of a fixed pool, boards share no state, so the throughput grows
+ * with the number of workers. Only a few boards per worker are created ahead, so any number of boards can be run in
+ * constant memory.
+ *
+ * @author Henrik Drefs
+ */
+public class BatchSimulation implements Closeable {
+
+    /**
+     * boards created ahead per worker, keeps every worker busy while the outcomes are consumed
+     */
+    private static final int BOARDS_AHEAD = 2;
+
+    private final int threads;
+    private final long maxGenerations;
+    private final GameOfLife.Storage storage;
+    private final boolean classified;
+    private final ExecutorService workers;
+    /**
+     * classifier of each worker, replaced when a board has another rule
+     */
+    private final ThreadLocal<Classifier> classifiers = new ThreadLocal<>();
+
+    /**
+     * @param threads        number of workers
+     * @param maxGenerations generations after which a board is stopped undecided
+     * @param storage        storage of the boards
+     * @throws IllegalArgumentException if {@code threads} is less than 1 or {@code maxGenerations} negative
+     */
+    public BatchSimulation(int threads, long maxGenerations, GameOfLife.Storage storage) {
+        this(threads, maxGenerations, storage, false);
+    }
+
+    /**
+     * @param threads        number of workers
+     * @param maxGenerations generations after which a board is stopped undecided
+     * @param storage        storage of the boards
+     * @param classified     whether the objects of static and cyclic boards are classified by the workers
+     * @throws IllegalArgumentException if {@code threads} is less than 1 or {@code maxGenerations} negative
+     */
+    public BatchSimulation(int threads, long maxGenerations, GameOfLife.Storage storage, boolean classified) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads invalid");
+        if (maxGenerations < 0)
+            throw new IllegalArgumentException("generations invalid");
+        this.threads = threads;
+        this.maxGenerations = maxGenerations;
+        this.storage = storage;
+        this.classified = classified;
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * runs all boards and passes the outcome of each to {@code results} as soon as it is finished, in the order the
+     * boards finish, on the calling thread
+     *
+     * @throws IllegalArgumentException if a board is invalid, e.g. its rule, the remaining boards are not run
+     * @throws InterruptedException     if interrupted while waiting for an outcome
+     */
+    public void run(Iterator<Board> boards, Consumer<Outcome> results) throws InterruptedException {
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(workers);
+        int running = 0;
+        while (boards.hasNext() || running > 0) {
+            while (running < threads * BOARDS_AHEAD && boards.hasNext()) {
+                Board board = boards.next();
+                completion.submit(() -> run(board));
+                running++;
+            }
+            Outcome outcome;
+            try {
+                outcome = completion.take().get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+            running--;
+            results.accept(outcome);
+        }
+    }
+
+    /**
+     * advances a board until it is decided or capped, runs on a worker
+     */
+    private Outcome run(Board board) {
+        GameOfLife gol = board.create(storage);
+        while (true) {
+            if (gol.allDead())
+                return new Outcome(board, Result.EXTINCT, gol.countAdvances(), gol, Collections.emptyList());
+            if (gol.isFieldStatic())
+                return new Outcome(board, Result.STATIC, gol.countAdvances() - 1, gol, classify(gol));
+            if (gol.isRepeating())
+                return new Outcome(board, Result.CYCLIC, gol.countAdvances() - gol.getCyclicPeriod(), gol,
+                        classify(gol));
+            if (gol.countAdvances() >= maxGenerations)
+                return new Outcome(board, Result.CAPPED, gol.countAdvances(), gol, Collections.emptyList());
+            gol.advance();
+        }
+    }
+
+    /**
+     * @return the objects of a settled board if classified, runs on a worker
+     */
+    private List<Component> classify(GameOfLife gol) {
+        if (!classified || gol.getRule().bornWithoutNeighbors())
+            return Collections.emptyList();
+        Classifier classifier = classifiers.get();
+        if (classifier == null || !classifier.getRule().equals(gol.getRule())) {
+            classifier = new Classifier(gol.getRule());
+            classifiers.set(classifier);
+        }
+        return classifier.classify(gol);
+    }
+
+    /**
+     * stops the workers, boards still running are abandoned
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * initial state of a board, either a configuration or a random soup
+     */
+    public static final class Board {
+        private final long id;
+        private final Config config;
+        private final int columns;
+        private final int rows;
+        private final Topology topology;
+        private final Rule rule;
+        private final long seed;
+        private final double density;
+
+        private Board(long id, Config config, int columns, int rows, Topology topology, Rule rule, long seed,
+                      double density) {
+            this.id = id;
+            this.config = config;
+            this.columns = columns;
+            this.rows = rows;
+            this.topology = topology;
+            this.rule = rule;
+            this.seed = seed;
+            this.density = density;
+        }
+
+        /**
+         * @param id identifies the board in its outcome
+         * @throws IllegalArgumentException if {@code config} is {@code null}
+         */
+        public static Board of(long id, Config config) {
+            if (config == null)
+                throw new IllegalArgumentException("config invalid");
+            return new Board(id, config, 0, 0, null, null, 0, 0);
+        }
+
+        /**
+         * @param id      identifies the board in its outcome
+         * @param seed    the same seed gives the same soup
+         * @param density probability of a cell to be alive
+         * @throws IllegalArgumentException if the size or density is invalid or the topology or rule is {@code null}
+         */
+        public static Board soup(long id, int columns, int rows, Topology topology, Rule rule, long seed,
+                                 double density) {
+            if (columns <= 0 || rows <= 0)
+                throw new IllegalArgumentException("size invalid");
+            if (!(density >= 0 && density <= 1))
+                throw new IllegalArgumentException("density invalid");
+            if (topology == null)
+                throw new IllegalArgumentException("topology invalid");
+            if (rule == null)
+                throw new IllegalArgumentException("rule invalid");
+            return new Board(id, null, columns, rows, topology, rule, seed, density);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * @return the seed of a soup, 0 for a configuration
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        GameOfLife create(GameOfLife.Storage storage) {
+            if (config != null)
+                return config.toGameOfLife(storage);
+            GameOfLife gol = new GameOfLife(rows, columns, storage);
+            gol.setTopology(topology);
+            gol.setRule(rule);
+            Soup.fill(gol, seed, density);
+            return gol;
+        }
+    }
+
+    /**
+     * how a board ended
+     */
+    public enum Result {
+        EXTINCT, STATIC, CYCLIC,
+        /**
+         * undecided at the generation cap
+         */
+        CAPPED
+    }
+
+    /**
+     * outcome of a board
+     */
+    public static final class Outcome {
+        private final Board board;
+        private final Result result;
+        private final long lifespan;
+        private final long generations;
+        private final long population;
+        private final int cyclicPeriod;
+        private final List<Component> components;
+
+        private Outcome(Board board, Result result, long lifespan, GameOfLife gol, List<Component> components) {
+            this.board = board;
+            this.result = result;
+            this.lifespan = lifespan;
+            generations = gol.countAdvances();
+            population = gol.countAlive();
+            cyclicPeriod = gol.getCyclicPeriod();
+            this.components = components;
+        }
+
+        public Board getBoard() {
+            return board;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        /**
+         * @return generation the board became extinct, static or entered its cycle, the generation cap if capped
+         */
+        public long getLifespan() {
+            return lifespan;
+        }
+
+        /**
+         * @return number of generations advanced
+         */
+        public long getGenerations() {
+            return generations;
+        }
+
+        /**
+         * @return number of alive cells at the end
+         */
+        public long getPopulation() {
+            return population;
+        }
+
+        /**
+         * @return period of the cycle, -1 if not cyclic
+         */
+        public int getCyclicPeriod() {
+            return cyclicPeriod;
+        }
+
+        /**
+         * @return objects of the board at the end, empty unless classified and static or cyclic
+         */
+        public List<Component> getComponents() {
+            return components;
+        }
+    }
+}
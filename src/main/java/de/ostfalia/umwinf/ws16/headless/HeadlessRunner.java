@@ -0,0 +1,204 @@
+package de.ostfalia.umwinf.ws16.headless;
+
+import de.ostfalia.umwinf.ws16.conf.Checkpointer;
+import de.ostfalia.umwinf.ws16.conf.PatternFormat;
+import de.ostfalia.umwinf.ws16.logic.Classifier;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Metrics;
+
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * main class for running simulations without a window, e.g. on compute nodes
+ * <p>
+ * loads a pattern (xml, rle, golb or gols), advances it until the given number of generations is reached or the game
+ * is extinct, static or cyclic and prints the result and timing, no JavaFX class is loaded
+ * <p>
+ * with a checkpoint directory the game is saved there periodically and a run resumes from the newest checkpoint
+ * instead of loading the pattern
+ * <p>
+ * the {@link Metrics} of the run are registered over JMX as {@code headless}, so long runs can be watched with e.g.
+ * jconsole, and the time per phase is printed at the end
+ *
+ * @author Henrik Drefs
+ */
+public class HeadlessRunner {
+
+    private static final long DEFAULT_GENERATIONS = 10000;
+    /**
+     * generations excluded from the steady state rate so the JIT can warm up
+     */
+    private static final long MAX_WARMUP = 1000;
+    private static final long DEFAULT_CHECKPOINT_SECONDS = 300;
+    private static final int DEFAULT_CHECKPOINTS_KEPT = 3;
+
+    private static final String USAGE = "usage: HeadlessRunner <pattern.xml|.rle|.golb|.gols> [-n generations]"
+            + " [-o result.xml|.rle|.golb|.gols] [-s boolean|bit_packed] [-t threads]"
+            + " [-c checkpoint-directory] [-cn generations] [-ct seconds] [-ck checkpoints kept]";
+
+    private final File configFile;
+    private long generations = DEFAULT_GENERATIONS;
+    private File resultFile;
+    private GameOfLife.Storage storage = GameOfLife.Storage.BIT_PACKED;
+    private int threads = 0;
+    private Path checkpointDirectory;
+    private long checkpointGenerations = 0;
+    private long checkpointSeconds = DEFAULT_CHECKPOINT_SECONDS;
+    private int checkpointsKept = DEFAULT_CHECKPOINTS_KEPT;
+
+    /**
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    HeadlessRunner(String[] args) {
+        if (args.length == 0 || args[0].startsWith("-"))
+            throw new IllegalArgumentException("config missing");
+        configFile = new File(args[0]);
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("value of " + args[i] + " missing");
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-n":
+                    generations = Long.parseLong(value);
+                    if (generations < 0)
+                        throw new IllegalArgumentException("generations invalid");
+                    break;
+                case "-o":
+                    resultFile = new File(value);
+                    break;
+                case "-s":
+                    storage = GameOfLife.Storage.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(value);
+                    if (threads <= 0)
+                        throw new IllegalArgumentException("threads invalid");
+                    break;
+                case "-c":
+                    checkpointDirectory = Paths.get(value);
+                    break;
+                case "-cn":
+                    checkpointGenerations = Long.parseLong(value);
+                    if (checkpointGenerations < 0)
+                        throw new IllegalArgumentException("checkpoint generations invalid");
+                    break;
+                case "-ct":
+                    checkpointSeconds = Long.parseLong(value);
+                    if (checkpointSeconds < 0)
+                        throw new IllegalArgumentException("checkpoint seconds invalid");
+                    break;
+                case "-ck":
+                    checkpointsKept = Integer.parseInt(value);
+                    if (checkpointsKept < 1)
+                        throw new IllegalArgumentException("checkpoints kept invalid");
+                    break;
+                default:
+                    throw new IllegalArgumentException("option " + args[i] + " invalid");
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        HeadlessRunner runner;
+        try {
+            runner = new HeadlessRunner(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            runner.run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("run failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    private void run() throws IOException {
+        GameOfLife gol = null;
+        if (checkpointDirectory != null) {
+            gol = Checkpointer.resume(checkpointDirectory, storage);
+            if (gol != null)
+                System.out.printf(Locale.ROOT, "resumed: generation %d%n", gol.countAdvances());
+        }
+        if (gol == null)
+            gol = PatternFormat.forFile(configFile).read(configFile, storage);
+        Checkpointer checkpointer = checkpointDirectory == null ? null : new Checkpointer(checkpointDirectory,
+                checkpointGenerations, TimeUnit.SECONDS.toMillis(checkpointSeconds), checkpointsKept);
+        if (threads > 0)
+            gol.setParallelism(threads);
+        Metrics metrics = new Metrics();
+        try {
+            metrics.register("headless");
+        } catch (JMException e) {
+            System.err.println("metrics not registered: " + e);
+        }
+        gol.setMetrics(metrics);
+        long startup = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.printf(Locale.ROOT, "field: %d x %d, %s, %s, %s, %d alive%n", gol.getColumnCount(),
+                gol.getRowCount(), storage, gol.getTopology(), gol.getRule(), gol.countAlive());
+        System.out.printf(Locale.ROOT, "startup: %d ms%n", startup);
+
+        long warmup = Math.min(MAX_WARMUP, generations / 10);
+        long start = System.nanoTime();
+        long steadyStart = start;
+        long resumed = gol.countAdvances();
+        // a resumed game may be decided already
+        String result = result(gol);
+        while (result == null && gol.countAdvances() < generations) {
+            gol.advance();
+            if (checkpointer != null)
+                checkpointer.advanced(gol);
+            if (gol.countAdvances() - resumed == warmup)
+                steadyStart = System.nanoTime();
+            result = result(gol);
+        }
+        long end = System.nanoTime();
+
+        if (checkpointer != null) {
+            checkpointer.checkpoint(gol);
+            checkpointer.close();
+        }
+
+        long advanced = gol.countAdvances() - resumed;
+        long steady = advanced > warmup ? advanced - warmup : advanced;
+        if (advanced <= warmup)
+            steadyStart = start;
+        System.out.printf(Locale.ROOT, "result: %s, %d generations, %d alive%n", result == null ? "undecided" : result,
+                gol.countAdvances(), gol.countAlive());
+        if (!gol.allDead() && !gol.getRule().bornWithoutNeighbors())
+            System.out.printf(Locale.ROOT, "objects: %s%n",
+                    Classifier.summarize(new Classifier(gol.getRule()).classify(gol)));
+        System.out.printf(Locale.ROOT, "time: %.1f ms%n", (end - start) / 1e6);
+        System.out.printf(Locale.ROOT, "steady state: %.1f gens/sec%n",
+                end > steadyStart ? steady * 1e9 / (end - steadyStart) : 0.0);
+        System.out.printf(Locale.ROOT, "phases: compute %.1f ms, cycle detection %.1f ms, listeners %.1f ms%n",
+                metrics.getComputeNanos() / 1e6, metrics.getCycleDetectionNanos() / 1e6,
+                metrics.getNotificationNanos() / 1e6);
+        if (resultFile != null)
+            PatternFormat.forFile(resultFile).write(gol, resultFile);
+    }
+
+    /**
+     * @return how the game ended, {@code null} if undecided
+     */
+    private static String result(GameOfLife gol) {
+        if (gol.allDead())
+            return String.format("extinct (after %d)", gol.countAdvances());
+        if (gol.isFieldStatic())
+            return String.format("static (after %d)", gol.countAdvances());
+        if (gol.isRepeating())
+            return String.format("cyclic (period: %d, after %d)", gol.getCyclicPeriod(),
+                    gol.countAdvances() - gol.getCyclicPeriod());
+        return null;
+    }
+}
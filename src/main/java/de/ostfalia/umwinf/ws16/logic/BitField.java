@@ -0,0 +1,476 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * bit-packed field, 64 cells per {@code long}, advancing 64 cells per operation with a bitwise adder
+ * <p>
+ * cell {@code x} of a row is bit {@code x & 63} of word {@code 1 + (x >> 6)}. Every row has a guard word on both
+ * sides and the field has a guard row above and below, so the kernel never needs bounds checks. Bits at or beyond
+ * {@code columns} are kept clear.
+ * <p>
+ * the field is split into tiles of one word times {@link #TILE_ROWS} rows. A step only computes tiles that changed
+ * in the previous step or border on one that did, the others are taken over from the field it is computed into.
+ * <p>
+ * rows are shared with the fields returned by {@link #share()} and copied before they are changed.
+ *
+ * @author Henrik Drefs
+ */
+class BitField extends Field {
+
+    static final int TILE_ROWS = 32;
+
+    /**
+     * data words per row
+     */
+    final int words;
+    /**
+     * mask of the valid bits in the last data word of each row
+     */
+    final long lastMask;
+    /**
+     * {@code rows + 2} rows of {@code words + 2} words, including guard rows and words
+     */
+    final long[][] bits;
+    /**
+     * rows above the first and below the last row as given by the topology, same layout as a row
+     */
+    private final long[] ghostTop;
+    private final long[] ghostBottom;
+    private final int tileRows;
+    /**
+     * tiles that changed in the step that computed this field or by an edit since, row by row
+     */
+    private final boolean[] changed;
+    /**
+     * tile rows containing a changed tile
+     */
+    private final boolean[] changedRows;
+    /**
+     * tiles computed by the current step
+     */
+    private final boolean[] active;
+    /**
+     * whether the next step has to compute every tile
+     */
+    private boolean allChanged = true;
+
+    BitField(int rows, int columns) {
+        this(rows, columns, new long[rows + 2][((columns + 63) >>> 6) + 2]);
+    }
+
+    private BitField(int rows, int columns, long[][] bits) {
+        super(rows, columns);
+        words = (columns + 63) >>> 6;
+        lastMask = (columns & 63) == 0 ? -1L : (1L << columns) - 1;
+        this.bits = bits;
+        ghostTop = new long[words + 2];
+        ghostBottom = new long[words + 2];
+        tileRows = (rows + TILE_ROWS - 1) / TILE_ROWS;
+        changed = new boolean[tileRows * words];
+        changedRows = new boolean[tileRows];
+        active = new boolean[tileRows * words];
+    }
+
+    @Override
+    boolean get(int x, int y) {
+        return (bits[y + 1][1 + (x >>> 6)] & 1L << x) != 0;
+    }
+
+    /**
+     * @return row {@code y} (including guard row), copied first if it is shared
+     */
+    private long[] writableRow(int y) {
+        if (claimRow(y))
+            bits[y] = bits[y].clone();
+        return bits[y];
+    }
+
+    @Override
+    void set(int x, int y, boolean state) {
+        long[] row = writableRow(y + 1);
+        int word = 1 + (x >>> 6);
+        long old = row[word];
+        row[word] = state ? old | 1L << x : old & ~(1L << x);
+        long index = (long) (y + 1) * (words + 2) + word;
+        hash1 ^= hash1(index, old) ^ hash1(index, row[word]);
+        hash2 ^= hash2(index, old) ^ hash2(index, row[word]);
+        changed[y / TILE_ROWS * words + word - 1] = true;
+        changedRows[y / TILE_ROWS] = true;
+    }
+
+    /**
+     * zobrist hash of a word, word-wise instead of cell-wise so a changed word costs a single mix
+     *
+     * @return 0 for an empty word
+     */
+    private static long hash1(long index, long word) {
+        return Diff.mix(word ^ index * 0x9e3779b97f4a7c15L) & (word | -word) >> 63;
+    }
+
+    private static long hash2(long index, long word) {
+        return Diff.mix2(word + index * 0xc2b2ae3d27d4eb4fL) & (word | -word) >> 63;
+    }
+
+    @Override
+    void step(Field nextField, int from, int to, Diff diff) {
+        BitField next = (BitField) nextField;
+        for (int tileRow = from / TILE_ROWS; tileRow * TILE_ROWS < to; tileRow++) {
+            int tiles = tileRow * words;
+            if (next.changedRows[tileRow]) {
+                Arrays.fill(next.changed, tiles, tiles + words, false);
+                next.changedRows[tileRow] = false;
+            }
+            boolean wrapped = topology != Topology.DEAD;
+            // with a topology the border tiles depend on the opposite border, so they are always computed
+            boolean borderRow = wrapped && (tileRow == 0 || tileRow == tileRows - 1);
+            if (!allChanged && !wrapped && !changedRows[tileRow]
+                    && (tileRow == 0 || !changedRows[tileRow - 1])
+                    && (tileRow == tileRows - 1 || !changedRows[tileRow + 1]))
+                continue;
+            boolean anyActive = false;
+            for (int k = 1; k <= words; k++) {
+                boolean tileActive = allChanged || borderRow || wrapped && (k == 1 || k == words)
+                        || isActive(tileRow, k - 1);
+                active[tiles + k - 1] = tileActive;
+                anyActive |= tileActive;
+            }
+            if (!anyActive)
+                continue;
+            int last = Math.min(to, (tileRow + 1) * TILE_ROWS);
+            for (int y = Math.max(from, tileRow * TILE_ROWS) + 1; y <= last; y++)
+                stepRow(next, y, tiles, diff);
+        }
+        next.allChanged = false;
+    }
+
+    /**
+     * @return whether the tile or one of its neighbors changed in the last step
+     */
+    private boolean isActive(int tileRow, int tileColumn) {
+        int lastRow = Math.min(tileRows - 1, tileRow + 1);
+        int lastColumn = Math.min(words - 1, tileColumn + 1);
+        for (int r = Math.max(0, tileRow - 1); r <= lastRow; r++)
+            for (int c = Math.max(0, tileColumn - 1); c <= lastColumn; c++)
+                if (changed[r * words + c])
+                    return true;
+        return false;
+    }
+
+    /**
+     * computes the active words of row {@code y} (including guard row) of the next generation
+     *
+     * @param tiles index of the first tile of the row
+     */
+    private void stepRow(BitField next, int y, int tiles, Diff diff) {
+        long[] up = y == 1 ? ghostTop : bits[y - 1];
+        long[] mid = bits[y];
+        long[] down = y == rows ? ghostBottom : bits[y + 1];
+        long[] out = next.writableRow(y);
+        int first = 1;
+        int last = words;
+        if (topology != Topology.DEAD) {
+            // the words at the borders take their outer neighbors from the topology
+            first = 2;
+            last = words - 1;
+            if (active[tiles])
+                stepEdgeWord(out, next, y, 1, up, mid, down, tiles, diff);
+        }
+        for (int k = first; k <= last; k++) {
+            if (!active[tiles + k - 1])
+                continue;
+            long a = up[k], b = mid[k], c = down[k];
+            long now = nextWord(rule,
+                    a << 1 | up[k - 1] >>> 63, a, a >>> 1 | up[k + 1] << 63,
+                    b << 1 | mid[k - 1] >>> 63, b, b >>> 1 | mid[k + 1] << 63,
+                    c << 1 | down[k - 1] >>> 63, c, c >>> 1 | down[k + 1] << 63);
+            if (k == words)
+                now &= lastMask;
+            out[k] = now;
+            if (now != b) {
+                next.changed[tiles + k - 1] = true;
+                next.changedRows[(y - 1) / TILE_ROWS] = true;
+                diff(y, k, b, now, diff);
+            }
+        }
+        if (topology != Topology.DEAD && words > 1 && active[tiles + words - 1])
+            stepEdgeWord(out, next, y, words, up, mid, down, tiles, diff);
+    }
+
+    /**
+     * computes word {@code k} of row {@code y} into {@code out} like {@link #stepRow(BitField, int, int, Diff)}, but
+     * with the cells beyond the left and right border given by the topology
+     */
+    private void stepEdgeWord(long[] out, BitField next, int y, int k, long[] up, long[] mid, long[] down, int tiles,
+                              Diff diff) {
+        long a = withGhosts(up, k), b = withGhosts(mid, k), c = withGhosts(down, k);
+        long aw = withGhosts(up, k - 1), bw = withGhosts(mid, k - 1), cw = withGhosts(down, k - 1);
+        long ae = withGhosts(up, k + 1), be = withGhosts(mid, k + 1), ce = withGhosts(down, k + 1);
+        long now = nextWord(rule,
+                a << 1 | aw >>> 63, a, a >>> 1 | ae << 63,
+                b << 1 | bw >>> 63, b, b >>> 1 | be << 63,
+                c << 1 | cw >>> 63, c, c >>> 1 | ce << 63);
+        if (k == words)
+            now &= lastMask;
+        out[k] = now;
+        long old = mid[k];
+        if (now != old) {
+            next.changed[tiles + k - 1] = true;
+            next.changedRows[(y - 1) / TILE_ROWS] = true;
+            diff(y, k, old, now, diff);
+        }
+    }
+
+    /**
+     * @return word {@code k} of a row including the ghost cells left of cell 0 and right of the last cell
+     */
+    private long withGhosts(long[] row, int k) {
+        long word = k > words ? 0 : row[k];
+        if (k == 0)
+            return (long) ghost(row, true) << 63;
+        int eastBit = columns & 63;
+        if (k == words && eastBit != 0 || k == words + 1 && eastBit == 0)
+            word |= (long) ghost(row, false) << eastBit;
+        return word;
+    }
+
+    /**
+     * @return the state of the ghost cell left ({@code west}) or right of a row as 0 or 1
+     */
+    private int ghost(long[] row, boolean west) {
+        switch (topology) {
+            case TORUS:
+            case KLEIN_BOTTLE:
+                return cell(row, west ? columns - 1 : 0);
+            case MIRROR:
+                return cell(row, west ? 0 : columns - 1);
+            default:
+                return 0;
+        }
+    }
+
+    private static int cell(long[] row, int x) {
+        return (int) (row[1 + (x >>> 6)] >>> x) & 1;
+    }
+
+    @Override
+    void prepareStep() {
+        switch (topology) {
+            case TORUS:
+                System.arraycopy(bits[rows], 0, ghostTop, 0, words + 2);
+                System.arraycopy(bits[1], 0, ghostBottom, 0, words + 2);
+                break;
+            case KLEIN_BOTTLE:
+                reverse(bits[rows], ghostTop);
+                reverse(bits[1], ghostBottom);
+                break;
+            case MIRROR:
+                System.arraycopy(bits[1], 0, ghostTop, 0, words + 2);
+                System.arraycopy(bits[rows], 0, ghostBottom, 0, words + 2);
+                break;
+            default:
+                Arrays.fill(ghostTop, 0);
+                Arrays.fill(ghostBottom, 0);
+        }
+    }
+
+    /**
+     * writes the cells of {@code row} in reversed order into {@code reversed}
+     */
+    private void reverse(long[] row, long[] reversed) {
+        Arrays.fill(reversed, 0);
+        for (int x = 0; x < columns; x++)
+            reversed[1 + (x >>> 6)] |= (long) cell(row, columns - 1 - x) << x;
+    }
+
+    /**
+     * accumulates the difference of a word
+     */
+    private void diff(int y, int k, long old, long now, Diff diff) {
+        long index = (long) y * (words + 2) + k;
+        diff.hash1 ^= hash1(index, old) ^ hash1(index, now);
+        diff.hash2 ^= hash2(index, old) ^ hash2(index, now);
+        long flipped = old ^ now;
+        diff.flips += Long.bitCount(flipped);
+        diff.births += Long.bitCount(flipped & now);
+        if (diff.changes == null)
+            return;
+        while (flipped != 0) {
+            int bit = Long.numberOfTrailingZeros(flipped);
+            diff.changes.add((k - 1) << 6 | bit, y - 1, (now & 1L << bit) != 0);
+            flipped &= flipped - 1;
+        }
+    }
+
+    @Override
+    int bandAlignment() {
+        return TILE_ROWS;
+    }
+
+    @Override
+    void markAllChanged() {
+        allChanged = true;
+    }
+
+    /**
+     * computes the next state of 64 cells at once, each argument holds the neighbors in one direction
+     * (a: row above, b: same row, c: row below; w: west, e: east)
+     *
+     * @return the next state of the 64 cells in {@code b} under the given rule
+     */
+    static long nextWord(Rule rule, long aw, long a, long ae, long bw, long b, long be, long cw, long c, long ce) {
+        // sum of each row as two-bit number (sum, carry)
+        long aSum = aw ^ a ^ ae;
+        long aCarry = aw & a | ae & (aw ^ a);
+        long cSum = cw ^ c ^ ce;
+        long cCarry = cw & c | ce & (cw ^ c);
+        long bSum = bw ^ be;
+        long bCarry = bw & be;
+        // add up the ones
+        long ones = aSum ^ bSum ^ cSum;
+        long onesCarry = aSum & bSum | cSum & (aSum ^ bSum);
+        // add up the twos
+        long twosPartial = aCarry ^ bCarry ^ cCarry;
+        long fours = aCarry & bCarry | cCarry & (aCarry ^ bCarry);
+        long twos = twosPartial ^ onesCarry;
+        long foursCarry = twosPartial & onesCarry;
+        return rule.next(b, ones, twos, fours, foursCarry);
+    }
+
+    @Override
+    Field create() {
+        BitField field = new BitField(rows, columns);
+        field.topology = topology;
+        field.rule = rule;
+        return field;
+    }
+
+    @Override
+    Field share() {
+        BitField shared = new BitField(rows, columns, bits.clone());
+        shared.topology = topology;
+        shared.rule = rule;
+        shared.hash1 = hash1;
+        shared.hash2 = hash2;
+        shared.shareRows();
+        shareRows();
+        return shared;
+    }
+
+    @Override
+    long countAlive() {
+        long count = 0;
+        for (int y = 1; y <= rows; y++) {
+            long[] row = bits[y];
+            for (int k = 1; k <= words; k++)
+                count += Long.bitCount(row[k]);
+        }
+        return count;
+    }
+
+    @Override
+    void forEachAlive(LifeEngine.CellVisitor visitor) {
+        for (int y = 1; y <= rows; y++) {
+            long[] row = bits[y];
+            for (int k = 1; k <= words; k++) {
+                for (long word = row[k]; word != 0; word &= word - 1)
+                    visitor.visit((k - 1) << 6 | Long.numberOfTrailingZeros(word), y - 1);
+            }
+        }
+    }
+
+    @Override
+    boolean allDead() {
+        for (int y = 1; y <= rows; y++) {
+            long[] row = bits[y];
+            for (int k = 1; k <= words; k++)
+                if (row[k] != 0)
+                    return false;
+        }
+        return true;
+    }
+
+    @Override
+    boolean[][] toArray() {
+        boolean[][] array = new boolean[rows][columns];
+        for (int y = 0; y < rows; y++)
+            for (int x = 0; x < columns; x++)
+                array[y][x] = get(x, y);
+        return array;
+    }
+
+    @Override
+    void writeRows(LongBuffer out, int from, int to) {
+        for (int y = from + 1; y <= to; y++)
+            out.put(bits[y], 1, words);
+    }
+
+    @Override
+    void readRows(LongBuffer in, int from, int to) {
+        for (int y = from + 1; y <= to; y++) {
+            long[] row = writableRow(y);
+            in.get(row, 1, words);
+            if ((row[words] & ~lastMask) != 0)
+                throw new IllegalArgumentException("cell invalid");
+        }
+        allChanged = true;
+    }
+
+    @Override
+    void forEachChangedRows(RowsVisitor visitor) {
+        for (int tileRow = 0; tileRow < tileRows; ) {
+            if (!changedRows[tileRow]) {
+                tileRow++;
+                continue;
+            }
+            int first = tileRow;
+            while (tileRow < tileRows && changedRows[tileRow])
+                tileRow++;
+            visitor.visit(first * TILE_ROWS, Math.min(rows, tileRow * TILE_ROWS));
+        }
+    }
+
+    @Override
+    long getWord(long index) {
+        return bits[1 + (int) (index / words)][1 + (int) (index % words)];
+    }
+
+    @Override
+    void flipWord(long index, long mask) {
+        int y = (int) (index / words);
+        int word = 1 + (int) (index % words);
+        long[] row = writableRow(y + 1);
+        long old = row[word];
+        row[word] = old ^ mask & (word == words ? lastMask : -1L);
+        long hashIndex = (long) (y + 1) * (words + 2) + word;
+        hash1 ^= hash1(hashIndex, old) ^ hash1(hashIndex, row[word]);
+        hash2 ^= hash2(hashIndex, old) ^ hash2(hashIndex, row[word]);
+        changed[y / TILE_ROWS * words + word - 1] = true;
+        changedRows[y / TILE_ROWS] = true;
+    }
+
+    @Override
+    void rehash() {
+        hash1 = 0;
+        hash2 = 0;
+        for (int y = 1; y <= rows; y++) {
+            long[] row = bits[y];
+            for (int k = 1; k <= words; k++) {
+                long index = (long) y * (words + 2) + k;
+                hash1 ^= hash1(index, row[k]);
+                hash2 ^= hash2(index, row[k]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BitField && Arrays.deepEquals(bits, ((BitField) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(bits);
+    }
+}
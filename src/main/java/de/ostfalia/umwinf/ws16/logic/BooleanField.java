@@ -0,0 +1,265 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * one boolean per cell, evaluates every cell on its own
+ *
+ * @author Henrik Drefs
+ */
+class BooleanField extends Field {
+
+    private final boolean[][] cells;
+
+    BooleanField(int rows, int columns) {
+        this(rows, columns, new boolean[rows][columns]);
+    }
+
+    private BooleanField(int rows, int columns, boolean[][] cells) {
+        super(rows, columns);
+        this.cells = cells;
+    }
+
+    /**
+     * @return row {@code y}, copied first if it is shared
+     */
+    private boolean[] writableRow(int y) {
+        if (claimRow(y))
+            cells[y] = cells[y].clone();
+        return cells[y];
+    }
+
+    @Override
+    boolean get(int x, int y) {
+        return cells[y][x];
+    }
+
+    @Override
+    void set(int x, int y, boolean state) {
+        if (cells[y][x] == state)
+            return;
+        writableRow(y)[x] = state;
+        long index = (long) y * columns + x;
+        hash1 ^= Diff.mix(index);
+        hash2 ^= Diff.mix2(index);
+    }
+
+    @Override
+    void step(Field next, int from, int to, Diff diff) {
+        BooleanField nextField = (BooleanField) next;
+        for (int y = from; y < to; y++) {
+            boolean[] nextRow = nextField.writableRow(y);
+            for (int x = 0; x < columns; x++) {
+                boolean alive = getNextState(x, y);
+                nextRow[x] = alive;
+                if (cells[y][x] == alive)
+                    continue;
+                long index = (long) y * columns + x;
+                diff.hash1 ^= Diff.mix(index);
+                diff.hash2 ^= Diff.mix2(index);
+                diff.flips++;
+                if (alive)
+                    diff.births++;
+                if (diff.changes != null)
+                    diff.changes.add(x, y, alive);
+            }
+        }
+    }
+
+    /**
+     * @param x x-coordinate of cell to inspect
+     * @param y y-coordinate of cell to inspect
+     * @return the state of the given cell in the next generation
+     */
+    private boolean getNextState(int x, int y) {
+        // get number of alive neighbors
+        int aliveNeighbors = 0;
+        for (int row = y - 1; row <= y + 1; row++) {
+            for (int col = x - 1; col <= x + 1; col++) {
+                // if this cell
+                if (row == y && col == x) {
+                    continue;
+                }
+                if (isAlive(col, row)) {
+                    aliveNeighbors++;
+                }
+            }
+        }
+        return rule.next(cells[y][x], aliveNeighbors);
+    }
+
+    /**
+     * @return the state of a cell, coordinates may lie one cell outside the field
+     */
+    private boolean isAlive(int x, int y) {
+        if (y < 0 || y >= rows) {
+            switch (topology) {
+                case DEAD:
+                    return false;
+                case KLEIN_BOTTLE:
+                    x = columns - 1 - x;
+                    y = (y + rows) % rows;
+                    break;
+                case TORUS:
+                    y = (y + rows) % rows;
+                    break;
+                case MIRROR:
+                    y = y < 0 ? 0 : rows - 1;
+                    break;
+            }
+        }
+        if (x < 0 || x >= columns) {
+            switch (topology) {
+                case DEAD:
+                    return false;
+                case TORUS:
+                case KLEIN_BOTTLE:
+                    x = (x + columns) % columns;
+                    break;
+                case MIRROR:
+                    x = x < 0 ? 0 : columns - 1;
+                    break;
+            }
+        }
+        return cells[y][x];
+    }
+
+    @Override
+    Field create() {
+        BooleanField field = new BooleanField(rows, columns);
+        field.topology = topology;
+        field.rule = rule;
+        return field;
+    }
+
+    @Override
+    Field share() {
+        BooleanField shared = new BooleanField(rows, columns, cells.clone());
+        shared.topology = topology;
+        shared.rule = rule;
+        shared.hash1 = hash1;
+        shared.hash2 = hash2;
+        shared.shareRows();
+        shareRows();
+        return shared;
+    }
+
+    @Override
+    long countAlive() {
+        long count = 0;
+        for (boolean[] row : cells)
+            for (boolean isAlive : row)
+                if (isAlive)
+                    count++;
+        return count;
+    }
+
+    @Override
+    void forEachAlive(LifeEngine.CellVisitor visitor) {
+        for (int y = 0; y < rows; y++)
+            for (int x = 0; x < columns; x++)
+                if (cells[y][x])
+                    visitor.visit(x, y);
+    }
+
+    @Override
+    boolean allDead() {
+        for (boolean[] row : cells)
+            for (boolean isAlive : row)
+                if (isAlive)
+                    return false;
+        return true;
+    }
+
+    @Override
+    boolean[][] toArray() {
+        boolean[][] array = new boolean[rows][];
+        for (int y = 0; y < rows; y++)
+            array[y] = cells[y].clone();
+        return array;
+    }
+
+    @Override
+    void writeRows(LongBuffer out, int from, int to) {
+        for (int y = from; y < to; y++) {
+            boolean[] row = cells[y];
+            for (int x = 0; x < columns; x += 64) {
+                long word = 0;
+                for (int bit = 0, end = Math.min(64, columns - x); bit < end; bit++)
+                    if (row[x + bit])
+                        word |= 1L << bit;
+                out.put(word);
+            }
+        }
+    }
+
+    @Override
+    void readRows(LongBuffer in, int from, int to) {
+        for (int y = from; y < to; y++) {
+            boolean[] row = writableRow(y);
+            for (int x = 0; x < columns; x += 64) {
+                long word = in.get();
+                if (columns - x < 64 && word >>> columns - x != 0)
+                    throw new IllegalArgumentException("cell invalid");
+                for (int bit = 0, end = Math.min(64, columns - x); bit < end; bit++)
+                    row[x + bit] = (word & 1L << bit) != 0;
+            }
+        }
+    }
+
+    @Override
+    void forEachChangedRows(RowsVisitor visitor) {
+        // changes are not tracked
+        visitor.visit(0, rows);
+    }
+
+    @Override
+    long getWord(long index) {
+        int words = (columns + 63) >>> 6;
+        boolean[] row = cells[(int) (index / words)];
+        int x = (int) (index % words) << 6;
+        long word = 0;
+        for (int bit = 0, end = Math.min(64, columns - x); bit < end; bit++)
+            if (row[x + bit])
+                word |= 1L << bit;
+        return word;
+    }
+
+    @Override
+    void flipWord(long index, long mask) {
+        int words = (columns + 63) >>> 6;
+        int y = (int) (index / words);
+        int x = (int) (index % words) << 6;
+        for (; mask != 0; mask &= mask - 1) {
+            int bit = x + Long.numberOfTrailingZeros(mask);
+            if (bit < columns)
+                set(bit, y, !cells[y][bit]);
+        }
+    }
+
+    @Override
+    void rehash() {
+        hash1 = 0;
+        hash2 = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                if (cells[y][x]) {
+                    long index = (long) y * columns + x;
+                    hash1 ^= Diff.mix(index);
+                    hash2 ^= Diff.mix2(index);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BooleanField && Arrays.deepEquals(cells, ((BooleanField) o).cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(cells);
+    }
+}
@@ -0,0 +1,72 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * rectangle of cells, all coordinates inclusive
+ *
+ * @author Henrik Drefs
+ */
+public final class CellBounds {
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * @throws IllegalArgumentException if a maximum is less than its minimum
+     */
+    public CellBounds(int minX, int minY, int maxX, int maxY) {
+        if (maxX < minX || maxY < minY)
+            throw new IllegalArgumentException("bounds invalid");
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getWidth() {
+        return maxX - minX + 1;
+    }
+
+    public int getHeight() {
+        return maxY - minY + 1;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CellBounds))
+            return false;
+        CellBounds other = (CellBounds) o;
+        return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((minX * 31 + minY) * 31 + maxX) * 31 + maxY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%d, %d) - (%d, %d)", minX, minY, maxX, maxY);
+    }
+}
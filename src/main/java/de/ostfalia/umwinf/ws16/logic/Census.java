@@ -0,0 +1,643 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * counts the objects found by a {@link Classifier} in many games, e.g. the settled soups of a batch, in an index file
+ * that grows across runs and can be merged with the index of other runs
+ * <p>
+ * objects are counted by their symmetric hash, so mirrored and rotated copies and every phase count as the same
+ * object. The file is a log of records: an object record with the description and cells of an object when it is
+ * counted the first time, then count records with the objects counted since the last flush. Only the counts and
+ * descriptions are held in memory, the cells of an object only until its record is written. Once the log holds more
+ * than {@link #COMPACT_FACTOR} records per object, it is rewritten with one object and count record per object.
+ * <p>
+ * every record ends with a CRC32, so a run that crashed while appending only loses the records after its last flush.
+ * The rewritten log is written under a temporary name and renamed when complete. Not thread-safe, a file must only
+ * be opened by one census at a time.
+ *
+ * @author Henrik Drefs
+ */
+public class Census implements Closeable {
+
+    /**
+     * "GOLC"
+     */
+    private static final int MAGIC = 0x474f4c43;
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final byte OBJECT = 1;
+    private static final byte COUNT = 2;
+    /**
+     * type and length before the payload of a record
+     */
+    private static final int RECORD_HEADER = 5;
+    private static final int CHECKSUM = 4;
+    private static final int MAX_PAYLOAD = 1 << 30;
+    /**
+     * hashes and count
+     */
+    private static final int COUNT_PAYLOAD = 24;
+    /**
+     * hashes, kind, period, displacement, population and the lengths of name and cells
+     */
+    private static final int OBJECT_PAYLOAD = 45;
+    /**
+     * objects changed until the counts are appended
+     */
+    private static final int FLUSH_OBJECTS = 1 << 16;
+    private static final int COMPACT_FACTOR = 4;
+    /**
+     * records the log holds at least before it is compacted, so small indexes are not rewritten on every flush
+     */
+    private static final int COMPACT_MIN = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private FileChannel channel;
+    /**
+     * size of the valid records, the next record is appended here
+     */
+    private long end;
+    private long records;
+    private final Map<Key, Entry> entries = new HashMap<>();
+    /**
+     * objects counted since the last flush
+     */
+    private final List<Entry> changed = new ArrayList<>();
+    private long total;
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * opens an index, records after a damaged record, e.g. of a crashed run, are dropped
+     *
+     * @param file file of the index, created if missing
+     * @throws IOException if the file can't be read or created or is not an index
+     */
+    public Census(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining())
+                    channel.write(header, header.position());
+                end = HEADER;
+            } else {
+                Reader reader = new Reader(channel);
+                while (reader.next()) {
+                    if (reader.type == OBJECT) {
+                        Entry entry = readObject(reader.payload, false);
+                        entry.offset = reader.offset;
+                        entries.putIfAbsent(new Key(entry.hash1, entry.hash2), entry);
+                    } else {
+                        Entry entry = entries.get(new Key(reader.payload.getLong(), reader.payload.getLong()));
+                        if (entry == null)
+                            break;
+                        long count = reader.payload.getLong();
+                        entry.count += count;
+                        total += count;
+                    }
+                    records++;
+                    end = reader.end;
+                }
+                channel.truncate(end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * counts an object
+     *
+     * @throws IOException if the counts are due to be appended and appending fails
+     */
+    public void add(Classification classification) throws IOException {
+        Key key = new Key(classification.getSymmetricHash1(), classification.getSymmetricHash2());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key.hash1, key.hash2, classification.getKind(), classification.getPeriod(),
+                    classification.getDx(), classification.getDy(), population(classification.getPattern()),
+                    classification.getName());
+            entry.pattern = classification.getPattern();
+            entries.put(key, entry);
+        }
+        count(entry, 1);
+    }
+
+    /**
+     * counts the objects of a game
+     *
+     * @throws IOException if the counts are due to be appended and appending fails
+     */
+    public void add(List<Component> components) throws IOException {
+        for (Component component : components)
+            add(component.getClassification());
+    }
+
+    /**
+     * adds the counts of another index, e.g. of a run on another machine
+     *
+     * @throws IOException              if the other index can't be read or the counts can't be appended
+     * @throws IllegalArgumentException if the other index is the file of this census
+     */
+    public void merge(Path other) throws IOException {
+        if (Files.exists(other) && Files.isSameFile(other, file))
+            throw new IllegalArgumentException("file invalid");
+        try (FileChannel otherChannel = FileChannel.open(other, StandardOpenOption.READ)) {
+            Reader reader = new Reader(otherChannel);
+            while (reader.next()) {
+                if (reader.type == OBJECT) {
+                    Entry entry = readObject(reader.payload, true);
+                    if (entries.putIfAbsent(new Key(entry.hash1, entry.hash2), entry) == null)
+                        count(entry, 0);
+                } else {
+                    Entry entry = entries.get(new Key(reader.payload.getLong(), reader.payload.getLong()));
+                    if (entry == null)
+                        break;
+                    count(entry, reader.payload.getLong());
+                }
+            }
+        }
+    }
+
+    private void count(Entry entry, long count) throws IOException {
+        if (!entry.changed) {
+            entry.changed = true;
+            changed.add(entry);
+        }
+        entry.count += count;
+        entry.pending += count;
+        total += count;
+        if (changed.size() >= FLUSH_OBJECTS)
+            flush();
+    }
+
+    /**
+     * appends the objects counted since the last flush, compacts the file if due
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        if (changed.isEmpty())
+            return;
+        long offset = end;
+        out.clear();
+        for (Entry entry : changed) {
+            if (entry.offset < 0) {
+                entry.offset = offset + out.position();
+                putObject(entry, entry.pattern);
+                entry.pattern = null;
+                records++;
+            }
+            putCount(entry, entry.pending);
+            records++;
+            entry.pending = 0;
+            entry.changed = false;
+        }
+        changed.clear();
+        end += write(channel, offset);
+        channel.force(false);
+        if (records > COMPACT_MIN && records > (long) COMPACT_FACTOR * entries.size())
+            compact();
+    }
+
+    /**
+     * rewrites the file with one object and one count record per object
+     *
+     * @throws IOException if writing fails, the file is unchanged then
+     */
+    public void compact() throws IOException {
+        flush();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long compactedEnd;
+        try (FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            compactedEnd = 0;
+            out.clear();
+            out.putInt(MAGIC).putInt(VERSION);
+            // the object records are copied in file order, so the old file is read once from start to end
+            Reader reader = new Reader(channel);
+            while (reader.next()) {
+                if (reader.type != OBJECT)
+                    continue;
+                Entry entry = entries.get(new Key(reader.payload.getLong(0), reader.payload.getLong(8)));
+                if (entry == null || entry.offset != reader.offset)
+                    continue;
+                if (out.position() >= BUFFER_SIZE)
+                    compactedEnd += write(compacted, compactedEnd);
+                entry.compactedOffset = compactedEnd + out.position();
+                putObject(entry, readObject(reader.payload, true).pattern);
+                putCount(entry, entry.count);
+            }
+            compactedEnd += write(compacted, compactedEnd);
+            compacted.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        channel.close();
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        for (Entry entry : entries.values())
+            entry.offset = entry.compactedOffset;
+        end = compactedEnd;
+        records = 2L * entries.size();
+    }
+
+    /**
+     * @return number of objects counted
+     */
+    public long countObjects() {
+        return total;
+    }
+
+    /**
+     * @return number of different objects
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the different objects, most frequent first
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getCount).reversed()
+                .thenComparing(Entry::getHash1).thenComparing(Entry::getHash2));
+        return list;
+    }
+
+    /**
+     * @return cells of an object of this census, rows separated by {@code $}, alive cells as {@code o}, dead ones as
+     * {@code .}
+     * @throws IOException if the cells can't be read
+     */
+    public String getPattern(Entry entry) throws IOException {
+        if (entry.pattern != null)
+            return entry.pattern;
+        Reader reader = new Reader(channel, entry.offset);
+        if (!reader.next() || reader.type != OBJECT)
+            throw new IOException("census damaged");
+        return readObject(reader.payload, true).pattern;
+    }
+
+    /**
+     * appends the counts not yet written
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static long population(String pattern) {
+        long population = 0;
+        for (int i = 0; i < pattern.length(); i++)
+            if (pattern.charAt(i) == 'o')
+                population++;
+        return population;
+    }
+
+    private void putObject(Entry entry, String pattern) {
+        byte[] name = entry.name == null ? null : entry.name.getBytes(StandardCharsets.UTF_8);
+        byte[] cells = pattern.getBytes(StandardCharsets.US_ASCII);
+        int start = beginRecord(OBJECT, OBJECT_PAYLOAD + (name == null ? 0 : name.length) + cells.length);
+        out.putLong(entry.hash1)
+                .putLong(entry.hash2)
+                .put((byte) entry.kind.ordinal())
+                .putInt(entry.period)
+                .putInt(entry.dx)
+                .putInt(entry.dy)
+                .putLong(entry.population)
+                .putInt(name == null ? -1 : name.length);
+        if (name != null)
+            out.put(name);
+        out.putInt(cells.length).put(cells);
+        endRecord(start);
+    }
+
+    private void putCount(Entry entry, long count) {
+        int start = beginRecord(COUNT, COUNT_PAYLOAD);
+        out.putLong(entry.hash1).putLong(entry.hash2).putLong(count);
+        endRecord(start);
+    }
+
+    /**
+     * @return position of the record in the buffer
+     */
+    private int beginRecord(byte type, int length) {
+        if (out.remaining() < RECORD_HEADER + length + CHECKSUM) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + RECORD_HEADER
+                    + length + CHECKSUM)).order(ByteOrder.LITTLE_ENDIAN);
+            out.flip();
+            out = grown.put(out);
+        }
+        int start = out.position();
+        out.put(type).putInt(length);
+        return start;
+    }
+
+    private void endRecord(int start) {
+        crc.reset();
+        crc.update(out.array(), start, out.position() - start);
+        out.putInt((int) crc.getValue());
+    }
+
+    /**
+     * writes the buffer at a position of a channel
+     *
+     * @return number of bytes written
+     */
+    private int write(FileChannel target, long position) throws IOException {
+        out.flip();
+        int length = out.remaining();
+        while (out.hasRemaining())
+            target.write(out, position + out.position());
+        out.clear();
+        return length;
+    }
+
+    /**
+     * @param withPattern whether the cells are read, otherwise skipped
+     */
+    private static Entry readObject(ByteBuffer payload, boolean withPattern) throws IOException {
+        try {
+            long hash1 = payload.getLong();
+            long hash2 = payload.getLong();
+            int kind = payload.get();
+            if (kind < 0 || kind >= Classification.Kind.values().length)
+                throw new IOException("census damaged");
+            int period = payload.getInt();
+            int dx = payload.getInt();
+            int dy = payload.getInt();
+            long population = payload.getLong();
+            int nameLength = payload.getInt();
+            String name = null;
+            if (nameLength >= 0) {
+                byte[] bytes = new byte[nameLength];
+                payload.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            Entry entry = new Entry(hash1, hash2, Classification.Kind.values()[kind], period, dx, dy, population,
+                    name);
+            if (withPattern) {
+                byte[] cells = new byte[payload.getInt()];
+                payload.get(cells);
+                entry.pattern = new String(cells, StandardCharsets.US_ASCII);
+            }
+            return entry;
+        } catch (RuntimeException e) {
+            throw new IOException("census damaged", e);
+        }
+    }
+
+    /**
+     * an object of a census with its count
+     */
+    public static final class Entry {
+        private final long hash1;
+        private final long hash2;
+        private final Classification.Kind kind;
+        private final int period;
+        private final int dx;
+        private final int dy;
+        private final long population;
+        private final String name;
+        private long count;
+        /**
+         * count not yet appended
+         */
+        private long pending;
+        /**
+         * whether the object was counted since the last flush
+         */
+        private boolean changed;
+        /**
+         * offset of the object record, -1 if not yet appended
+         */
+        private long offset = -1;
+        /**
+         * offset of the object record in the file being compacted
+         */
+        private long compactedOffset;
+        /**
+         * cells until the object record is appended
+         */
+        private String pattern;
+
+        /**
+         * @param dx any displacement, stored as absolute values, the larger one first, as in every orientation
+         */
+        private Entry(long hash1, long hash2, Classification.Kind kind, int period, int dx, int dy, long population,
+                      String name) {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+            this.kind = kind;
+            this.period = period;
+            this.dx = Math.max(Math.abs(dx), Math.abs(dy));
+            this.dy = Math.min(Math.abs(dx), Math.abs(dy));
+            this.population = population;
+            this.name = name;
+        }
+
+        /**
+         * @return first half of the symmetric hash of the object
+         */
+        public long getHash1() {
+            return hash1;
+        }
+
+        public long getHash2() {
+            return hash2;
+        }
+
+        public Classification.Kind getKind() {
+            return kind;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+
+        /**
+         * @return larger absolute displacement per period
+         */
+        public int getDx() {
+            return dx;
+        }
+
+        /**
+         * @return smaller absolute displacement per period
+         */
+        public int getDy() {
+            return dy;
+        }
+
+        /**
+         * @return alive cells of the stored phase
+         */
+        public long getPopulation() {
+            return population;
+        }
+
+        /**
+         * @return common name like "glider", {@code null} if unknown
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of times the object was counted
+         */
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return Classification.describe(kind, period, dx, dy, population, name);
+        }
+    }
+
+    private static final class Key {
+        final long hash1;
+        final long hash2;
+
+        Key(long hash1, long hash2) {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return hash1 == key.hash1 && hash2 == key.hash2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash1;
+        }
+    }
+
+    /**
+     * reads the records of a file one after another, stops at the end or a damaged record
+     */
+    private static final class Reader {
+        private final DataInputStream in;
+        private final byte[] header = new byte[RECORD_HEADER];
+        private final CRC32 crc = new CRC32();
+        /**
+         * offset of the current record
+         */
+        long offset;
+        /**
+         * offset after the current record
+         */
+        long end;
+        byte type;
+        ByteBuffer payload;
+
+        /**
+         * reads the records of a file after checking its header
+         *
+         * @throws IOException if the file is not an index
+         */
+        Reader(FileChannel channel) throws IOException {
+            this(channel, 0);
+            byte[] bytes = new byte[HEADER];
+            try {
+                in.readFully(bytes);
+            } catch (EOFException e) {
+                throw new IOException("not a census");
+            }
+            ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IOException("not a census");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("version " + version + " not supported");
+            end = HEADER;
+        }
+
+        /**
+         * reads the records from an offset on
+         */
+        Reader(FileChannel channel, long offset) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(offset)),
+                    BUFFER_SIZE));
+            end = offset;
+        }
+
+        /**
+         * @return whether a valid record was read
+         */
+        boolean next() throws IOException {
+            offset = end;
+            byte[] bytes;
+            int length;
+            try {
+                in.readFully(header);
+                ByteBuffer head = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+                type = head.get();
+                length = head.getInt();
+                if (type != OBJECT && type != COUNT || length < 0 || length > MAX_PAYLOAD
+                        || type == COUNT && length != COUNT_PAYLOAD)
+                    return false;
+                bytes = new byte[length + CHECKSUM];
+                in.readFully(bytes);
+            } catch (EOFException e) {
+                return false;
+            }
+            crc.reset();
+            crc.update(header);
+            crc.update(bytes, 0, length);
+            payload = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            if (payload.getInt(length) != (int) crc.getValue())
+                return false;
+            payload.limit(length);
+            end = offset + RECORD_HEADER + length + CHECKSUM;
+            return true;
+        }
+    }
+}
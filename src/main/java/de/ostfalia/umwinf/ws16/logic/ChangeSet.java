@@ -0,0 +1,125 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.Arrays;
+
+/**
+ * cells of a {@link GameOfLife} that flipped in one change, delivered to {@link FieldListener}s
+ *
+ * @author Henrik Drefs
+ */
+public final class ChangeSet {
+
+    /**
+     * packed cells: y in the upper 32 bits, x shifted by 1 and the new state in the lowest bit
+     */
+    private long[] cells;
+    private int size;
+    private int births;
+    private long generation;
+    /**
+     * area replaced as a whole, {@code null} if every flipped cell is listed
+     */
+    private CellBounds replaced;
+
+    ChangeSet(int capacity) {
+        cells = new long[Math.max(capacity, 1)];
+    }
+
+    void add(int x, int y, boolean alive) {
+        if (size == cells.length)
+            cells = Arrays.copyOf(cells, size * 2);
+        cells[size++] = (long) y << 32 | (long) x << 1 | (alive ? 1 : 0);
+        if (alive)
+            births++;
+    }
+
+    void addAll(ChangeSet other) {
+        if (size + other.size > cells.length)
+            cells = Arrays.copyOf(cells, Math.max(size + other.size, size * 2));
+        System.arraycopy(other.cells, 0, cells, size, other.size);
+        size += other.size;
+        births += other.births;
+    }
+
+    /**
+     * empties the set for reuse, keeps its capacity
+     */
+    void clear() {
+        size = 0;
+        births = 0;
+        generation = 0;
+        replaced = null;
+    }
+
+    void setReplaced(CellBounds replaced) {
+        this.replaced = replaced;
+    }
+
+    /**
+     * @return area whose cells were replaced as a whole without listing the flipped cells, {@code null} if every
+     * flipped cell is listed
+     */
+    public CellBounds getReplaced() {
+        return replaced;
+    }
+
+    void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * @return the generation after the change
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return number of flipped cells
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i index of a flipped cell, {@code 0 <= i < size()}
+     * @return x-coordinate of the cell
+     */
+    public int getX(int i) {
+        return (int) cells[i] >>> 1;
+    }
+
+    /**
+     * @param i index of a flipped cell, {@code 0 <= i < size()}
+     * @return y-coordinate of the cell
+     */
+    public int getY(int i) {
+        return (int) (cells[i] >>> 32);
+    }
+
+    /**
+     * @param i index of a flipped cell, {@code 0 <= i < size()}
+     * @return the new state of the cell
+     */
+    public boolean isAlive(int i) {
+        return (cells[i] & 1) != 0;
+    }
+
+    /**
+     * @return number of cells that came alive
+     */
+    public int countBirths() {
+        return births;
+    }
+
+    /**
+     * @return number of cells that died
+     */
+    public int countDeaths() {
+        return size - births;
+    }
+}
@@ -0,0 +1,150 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * what an object of a {@link Classifier} does on its own, the same for every phase and position of the object
+ *
+ * @author Henrik Drefs
+ */
+public final class Classification {
+
+    /**
+     * behavior of an object
+     */
+    public enum Kind {
+        /**
+         * period 1 without displacement
+         */
+        STILL_LIFE,
+        OSCILLATOR,
+        /**
+         * moves by its displacement every period
+         */
+        SPACESHIP,
+        /**
+         * did not repeat within the period limit, e.g. dies, grows or is still evolving
+         */
+        UNSETTLED
+    }
+
+    private final Kind kind;
+    private final int period;
+    private final int dx;
+    private final int dy;
+    private final long population;
+    private final long hash1;
+    private final long hash2;
+    private final long symmetricHash1;
+    private final long symmetricHash2;
+    private final String pattern;
+    private final String name;
+
+    Classification(Kind kind, int period, int dx, int dy, long population, long hash1, long hash2,
+                   long symmetricHash1, long symmetricHash2, String pattern, String name) {
+        this.kind = kind;
+        this.period = period;
+        this.dx = dx;
+        this.dy = dy;
+        this.population = population;
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+        this.symmetricHash1 = symmetricHash1;
+        this.symmetricHash2 = symmetricHash2;
+        this.pattern = pattern;
+        this.name = name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return generations until the object repeats, 0 if unsettled
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * @return columns moved per period
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * @return rows moved per period
+     */
+    public int getDy() {
+        return dy;
+    }
+
+    /**
+     * @return alive cells of the phase the hash was taken from
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /**
+     * @return first half of the 128 bit hash of the object independent of its position and phase, the smallest
+     * position independent hash of its phases
+     */
+    public long getHash1() {
+        return hash1;
+    }
+
+    public long getHash2() {
+        return hash2;
+    }
+
+    /**
+     * @return first half of the 128 bit hash of the object independent of its position, phase and orientation, the
+     * smallest position independent hash of its phases in the eight orientations, so mirrored and rotated copies of
+     * the object have the same
+     */
+    public long getSymmetricHash1() {
+        return symmetricHash1;
+    }
+
+    public long getSymmetricHash2() {
+        return symmetricHash2;
+    }
+
+    /**
+     * @return cells of the phase and orientation the symmetric hash was taken from, rows separated by {@code $},
+     * alive cells as {@code o}, dead ones as {@code .}, the first phase of an unsettled object
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return common name like "glider", {@code null} if unknown
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name if known, otherwise kind, period and displacement
+     */
+    @Override
+    public String toString() {
+        return describe(kind, period, dx, dy, population, name);
+    }
+
+    static String describe(Kind kind, int period, int dx, int dy, long population, String name) {
+        if (name != null)
+            return name;
+        switch (kind) {
+            case STILL_LIFE:
+                return "still life " + population;
+            case OSCILLATOR:
+                return "oscillator p" + period;
+            case SPACESHIP:
+                return "spaceship (" + dx + "," + dy + ")/" + period;
+            default:
+                return "unsettled";
+        }
+    }
+}
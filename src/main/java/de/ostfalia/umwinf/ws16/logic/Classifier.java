@@ -0,0 +1,741 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * splits the alive cells of a game into groups that do not interact and tells what each group does on its own:
+ * still life, oscillator, spaceship or unsettled, with period and displacement
+ * <p>
+ * a group is looked up by the 128 bit hash of its cells relative to its bounds, so it is recognized at any position.
+ * Only groups not seen before are advanced on their own on the infinite plane until they repeat at any position,
+ * then every phase is cached, so classifying a settled field again mostly costs one lookup per group. Not thread-safe.
+ *
+ * @author Henrik Drefs
+ */
+public final class Classifier {
+
+    public static final int DEFAULT_MAX_PERIOD = 1024;
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+    /**
+     * cells up to this distance belong to the same group, farther cells have no dead neighbor in common
+     */
+    private static final int REACH = 2;
+    /**
+     * unsettled groups up to this many dead cells apart are tried together
+     */
+    private static final int MERGE_REACH = 8;
+    /**
+     * a group that grows beyond this multiple of its population is unsettled, e.g. a gun
+     */
+    private static final int GROWTH_LIMIT = 16;
+    /**
+     * cached for the phases of groups that consist of independent parts, never returned
+     */
+    private static final Classification INDEPENDENT_PARTS = new Classification(Classification.Kind.UNSETTLED, 0, 0,
+            0, 0, 0, 0, 0, 0, null, null);
+
+    private final Rule rule;
+    private final int maxPeriod;
+    /**
+     * classification of every phase seen, least recently used entries are dropped
+     */
+    private final Map<Key, Classification> cache;
+    /**
+     * whether common names are looked up, not while the names are collected
+     */
+    private final boolean named;
+
+    /**
+     * @throws IllegalArgumentException if dead cells without alive neighbors are born under the rule
+     */
+    public Classifier(Rule rule) {
+        this(rule, DEFAULT_MAX_PERIOD, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxPeriod generations a group is advanced until it is unsettled
+     * @param cacheSize phases kept
+     * @throws IllegalArgumentException if dead cells without alive neighbors are born under the rule or a limit is
+     *                                  less than 1
+     */
+    public Classifier(Rule rule, int maxPeriod, int cacheSize) {
+        this(rule, maxPeriod, cacheSize, true);
+    }
+
+    private Classifier(Rule rule, int maxPeriod, int cacheSize, boolean named) {
+        if (rule.bornWithoutNeighbors())
+            throw new IllegalArgumentException("rule invalid");
+        if (maxPeriod < 1)
+            throw new IllegalArgumentException("period invalid");
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("cache size invalid");
+        this.rule = rule;
+        this.maxPeriod = maxPeriod;
+        this.named = named;
+        cache = new LinkedHashMap<Key, Classification>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Classification> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * @return number of cached phases
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * groups of a game, groups of a bounded game wrap around the borders its topology glues without twist
+     * <p>
+     * cells closer than 3 cells are grouped, as farther cells do not interact in the next generation. A group whose
+     * connected parts evolve exactly like the whole group, e.g. two blocks, is split into them. Unsettled groups close
+     * to each other are merged if they repeat together, e.g. the separate halves of some phases of an oscillator.
+     *
+     * @throws IllegalArgumentException if the engine has another rule
+     */
+    public List<Component> classify(LifeEngine engine) {
+        if (!engine.getRule().equals(rule))
+            throw new IllegalArgumentException("rule invalid");
+        int columns = 0;
+        int rows = 0;
+        if (engine instanceof GameOfLife) {
+            GameOfLife gol = (GameOfLife) engine;
+            Topology topology = gol.getTopology();
+            if (topology == Topology.TORUS || topology == Topology.KLEIN_BOTTLE)
+                columns = gol.getColumnCount();
+            if (topology == Topology.TORUS)
+                rows = gol.getRowCount();
+        }
+        Cells cells = new Cells((int) Math.min(engine.countAlive(), Integer.MAX_VALUE - 8));
+        engine.forEachAlive(cells::add);
+        cells.index();
+
+        Search search = new Search(cells, columns, rows);
+        List<Group> groups = new ArrayList<>();
+        for (int first = 0; first < cells.size; first++)
+            if (!search.grouped[first])
+                classify(search, search.group(first), groups);
+        mergeUnsettled(search, groups);
+        List<Component> components = new ArrayList<>(groups.size());
+        for (Group group : groups)
+            if (group != null)
+                components.add(new Component(group.bounds, group.members.length, group.classification));
+        return components;
+    }
+
+    /**
+     * @return counts of the classifications, most frequent first, e.g. "3 block, 1 glider"
+     */
+    public static String summarize(List<Component> components) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Component component : components)
+            counts.merge(component.getClassification().toString(), 1, Integer::sum);
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(entry -> entry.getValue() + " " + entry.getKey())
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * classifies a group or its parts if they are independent
+     */
+    private void classify(Search search, int[] members, List<Group> groups) {
+        CellBounds bounds = search.bounds(members);
+        Key key = search.key(members, bounds);
+        Classification classification = cache.get(key);
+        List<int[]> parts = null;
+        if (classification == null) {
+            Run run = simulate(search.life(members, bounds), key);
+            if (run.period > 0) {
+                parts = search.parts(members);
+                if (parts.size() > 1 && independent(search, bounds, members, parts, run.period)
+                        && settled(search, parts)) {
+                    for (int i = 0; i < run.period; i++)
+                        cache.put(run.phases[i], INDEPENDENT_PARTS);
+                    classification = INDEPENDENT_PARTS;
+                }
+            }
+            if (classification == null)
+                classification = classification(run);
+        }
+        if (classification != INDEPENDENT_PARTS) {
+            groups.add(new Group(members, bounds, classification));
+            return;
+        }
+        if (parts == null)
+            parts = search.parts(members);
+        for (int[] part : parts)
+            classify(search, part, groups);
+    }
+
+    /**
+     * @return whether the parts advanced on their own give the same cells as the whole group for a period
+     */
+    private boolean independent(Search search, CellBounds bounds, int[] members, List<int[]> parts, int period) {
+        SparseLife whole = search.life(members, bounds);
+        SparseLife[] lives = new SparseLife[parts.size()];
+        for (int i = 0; i < lives.length; i++)
+            lives[i] = search.life(parts.get(i), bounds);
+        for (int generation = 1; generation <= period; generation++) {
+            whole.advance();
+            Hasher wholeHasher = new Hasher(0, 0);
+            whole.forEachAlive(wholeHasher);
+            // cells of disjoint parts hash to the cells of their union
+            Hasher partsHasher = new Hasher(0, 0);
+            for (SparseLife life : lives) {
+                life.advance();
+                life.forEachAlive(partsHasher);
+            }
+            if (wholeHasher.hash1 != partsHasher.hash1 || wholeHasher.hash2 != partsHasher.hash2)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether every part repeats on its own, otherwise a part is only a spark of the group
+     */
+    private boolean settled(Search search, List<int[]> parts) {
+        for (int[] part : parts)
+            if (lookup(search, part, search.bounds(part)).getKind() == Classification.Kind.UNSETTLED)
+                return false;
+        return true;
+    }
+
+    /**
+     * @return the classification of a group without splitting it
+     */
+    private Classification lookup(Search search, int[] members, CellBounds bounds) {
+        Key key = search.key(members, bounds);
+        Classification classification = cache.get(key);
+        return classification != null ? classification : classification(simulate(search.life(members, bounds), key));
+    }
+
+    /**
+     * merges clusters of unsettled groups close to each other if they repeat together
+     */
+    private void mergeUnsettled(Search search, List<Group> groups) {
+        List<Integer> unsettled = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++)
+            if (groups.get(i).classification.getKind() == Classification.Kind.UNSETTLED)
+                unsettled.add(i);
+        boolean[] clustered = new boolean[unsettled.size()];
+        for (int first = 0; first < unsettled.size(); first++) {
+            if (clustered[first])
+                continue;
+            clustered[first] = true;
+            List<Integer> cluster = new ArrayList<>();
+            cluster.add(first);
+            int members = 0;
+            for (int head = 0; head < cluster.size(); head++) {
+                Group group = groups.get(unsettled.get(cluster.get(head)));
+                members += group.members.length;
+                for (int other = 0; other < unsettled.size(); other++) {
+                    if (!clustered[other]
+                            && gap(group.bounds, groups.get(unsettled.get(other)).bounds) <= MERGE_REACH) {
+                        clustered[other] = true;
+                        cluster.add(other);
+                    }
+                }
+            }
+            if (cluster.size() == 1)
+                continue;
+            int[] merged = new int[members];
+            int size = 0;
+            for (int index : cluster) {
+                int[] part = groups.get(unsettled.get(index)).members;
+                System.arraycopy(part, 0, merged, size, part.length);
+                size += part.length;
+            }
+            CellBounds bounds = search.bounds(merged);
+            Classification classification = lookup(search, merged, bounds);
+            if (classification == INDEPENDENT_PARTS || classification.getKind() == Classification.Kind.UNSETTLED)
+                continue;
+            groups.set(unsettled.get(first), new Group(merged, bounds, classification));
+            for (int i = 1; i < cluster.size(); i++)
+                groups.set(unsettled.get(cluster.get(i)), null);
+        }
+    }
+
+    /**
+     * @return number of dead columns or rows between two areas, negative if they overlap
+     */
+    private static int gap(CellBounds a, CellBounds b) {
+        return Math.max(Math.max(b.getMinX() - a.getMaxX(), a.getMinX() - b.getMaxX()),
+                Math.max(b.getMinY() - a.getMaxY(), a.getMinY() - b.getMaxY())) - 1;
+    }
+
+    /**
+     * advances a group until it repeats at any position, then once more through its phases to orient them
+     *
+     * @param key hash of the group relative to its bounds
+     */
+    private Run simulate(SparseLife life, Key key) {
+        CellBounds start = life.getBounds();
+        Run run = new Run(key, life.countAlive());
+        run.orientation.add(life);
+        for (int generation = 1; generation <= maxPeriod; generation++) {
+            life.advance();
+            if (life.allDead() || life.countAlive() > GROWTH_LIMIT * run.populations[0])
+                break;
+            CellBounds bounds = life.getBounds();
+            Hasher hasher = new Hasher(bounds.getMinX(), bounds.getMinY());
+            life.forEachAlive(hasher);
+            Key phase = new Key(hasher.hash1, hasher.hash2);
+            if (phase.equals(key)) {
+                run.period = generation;
+                run.dx = bounds.getMinX() - start.getMinX();
+                run.dy = bounds.getMinY() - start.getMinY();
+                break;
+            }
+            run.add(phase, life.countAlive());
+        }
+        for (int generation = 1; generation < run.period; generation++) {
+            life.advance();
+            run.orientation.add(life);
+        }
+        return run;
+    }
+
+    /**
+     * @return the classification of a run, cached for every phase
+     */
+    private Classification classification(Run run) {
+        if (run.period == 0) {
+            Key key = run.phases[0];
+            Key symmetric = run.orientation.key;
+            Classification unsettled = new Classification(Classification.Kind.UNSETTLED, 0, 0, 0, run.populations[0],
+                    key.hash1, key.hash2, symmetric.hash1, symmetric.hash2, run.orientation.pattern(), null);
+            cache.put(key, unsettled);
+            return unsettled;
+        }
+        int canonical = 0;
+        for (int i = 1; i < run.period; i++)
+            if (run.phases[i].compareTo(run.phases[canonical]) < 0)
+                canonical = i;
+        Key key = run.phases[canonical];
+        Classification.Kind kind = run.dx != 0 || run.dy != 0 ? Classification.Kind.SPACESHIP
+                : run.period == 1 ? Classification.Kind.STILL_LIFE : Classification.Kind.OSCILLATOR;
+        Key symmetric = run.orientation.key;
+        String name = named && rule.equals(Rule.CONWAY) ? Names.NAMES.get(symmetric) : null;
+        Classification classification = new Classification(kind, run.period, run.dx, run.dy,
+                run.populations[canonical], key.hash1, key.hash2, symmetric.hash1, symmetric.hash2,
+                run.orientation.pattern(), name);
+        for (int i = 0; i < run.period; i++)
+            cache.put(run.phases[i], classification);
+        return classification;
+    }
+
+    /**
+     * phases of a group advanced on its own
+     */
+    private static final class Run {
+        Key[] phases = new Key[16];
+        long[] populations = new long[16];
+        int size;
+        /**
+         * 0 if the group did not repeat
+         */
+        int period;
+        int dx;
+        int dy;
+        final Orientation orientation = new Orientation();
+
+        Run(Key key, long population) {
+            add(key, population);
+        }
+
+        void add(Key phase, long population) {
+            if (size == phases.length) {
+                phases = Arrays.copyOf(phases, size * 2);
+                populations = Arrays.copyOf(populations, size * 2);
+            }
+            phases[size] = phase;
+            populations[size] = population;
+            size++;
+        }
+    }
+
+    private static final class Group {
+        final int[] members;
+        final CellBounds bounds;
+        final Classification classification;
+
+        Group(int[] members, CellBounds bounds, Classification classification) {
+            this.members = members;
+            this.bounds = bounds;
+            this.classification = classification;
+        }
+    }
+
+    /**
+     * breadth first search for groups and their parts, positions are continued across glued borders
+     */
+    private final class Search {
+        private final Cells cells;
+        private final int columns;
+        private final int rows;
+        /**
+         * positions of the cells continued from the first cell of their group
+         */
+        private final int[] x;
+        private final int[] y;
+        final boolean[] grouped;
+        private final boolean[] parted;
+        private final int[] queue;
+
+        /**
+         * @param columns columns of the glued borders, 0 if not glued
+         * @param rows    rows of the glued borders, 0 if not glued
+         */
+        Search(Cells cells, int columns, int rows) {
+            this.cells = cells;
+            this.columns = columns;
+            this.rows = rows;
+            x = new int[cells.size];
+            y = new int[cells.size];
+            grouped = new boolean[cells.size];
+            parted = new boolean[cells.size];
+            queue = new int[cells.size];
+        }
+
+        /**
+         * @return the cells of the group of a cell
+         */
+        int[] group(int first) {
+            x[first] = cells.x[first];
+            y[first] = cells.y[first];
+            return search(first, REACH, grouped, true);
+        }
+
+        /**
+         * @return the connected parts of a group
+         */
+        List<int[]> parts(int[] members) {
+            List<int[]> parts = new ArrayList<>();
+            for (int cell : members)
+                if (!parted[cell])
+                    parts.add(search(cell, 1, parted, false));
+            return parts;
+        }
+
+        private int[] search(int first, int reach, boolean[] visited, boolean position) {
+            int head = 0;
+            int tail = 0;
+            visited[first] = true;
+            queue[tail++] = first;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int dy = -reach; dy <= reach; dy++) {
+                    for (int dx = -reach; dx <= reach; dx++) {
+                        int neighborX = cells.x[cell] + dx;
+                        int neighborY = cells.y[cell] + dy;
+                        if (columns > 0)
+                            neighborX = Math.floorMod(neighborX, columns);
+                        if (rows > 0)
+                            neighborY = Math.floorMod(neighborY, rows);
+                        int neighbor = cells.find(neighborX, neighborY);
+                        if (neighbor == -1 || visited[neighbor])
+                            continue;
+                        visited[neighbor] = true;
+                        if (position) {
+                            x[neighbor] = x[cell] + dx;
+                            y[neighbor] = y[cell] + dy;
+                        }
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            return Arrays.copyOf(queue, tail);
+        }
+
+        CellBounds bounds(int[] members) {
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int cell : members) {
+                minX = Math.min(minX, x[cell]);
+                minY = Math.min(minY, y[cell]);
+                maxX = Math.max(maxX, x[cell]);
+                maxY = Math.max(maxY, y[cell]);
+            }
+            return new CellBounds(minX, minY, maxX, maxY);
+        }
+
+        /**
+         * @return hash of the cells relative to their bounds
+         */
+        Key key(int[] members, CellBounds bounds) {
+            Hasher hasher = new Hasher(bounds.getMinX(), bounds.getMinY());
+            for (int cell : members)
+                hasher.visit(x[cell], y[cell]);
+            return new Key(hasher.hash1, hasher.hash2);
+        }
+
+        /**
+         * @return the cells on the infinite plane relative to the top left corner of {@code bounds}
+         */
+        SparseLife life(int[] members, CellBounds bounds) {
+            SparseLife life = new SparseLife(rule);
+            for (int cell : members)
+                life.setCell(true, x[cell] - bounds.getMinX(), y[cell] - bounds.getMinY());
+            return life;
+        }
+    }
+
+    /**
+     * 128 bit hash of the cells relative to an origin
+     */
+    private static final class Hasher implements LifeEngine.CellVisitor {
+        private final int originX;
+        private final int originY;
+        long hash1;
+        long hash2;
+
+        Hasher(int originX, int originY) {
+            this.originX = originX;
+            this.originY = originY;
+        }
+
+        @Override
+        public void visit(int x, int y) {
+            long cell = (long) (y - originY) << 32 | (x - originX) & 0xffffffffL;
+            hash1 ^= Diff.mix(cell);
+            hash2 ^= Diff.mix2(cell);
+        }
+    }
+
+    /**
+     * smallest position independent hash of phases over the eight orientations, optionally mirrored on each axis,
+     * then optionally transposed
+     */
+    private static final class Orientation implements LifeEngine.CellVisitor {
+        private int[] xs = new int[16];
+        private int[] ys = new int[16];
+        private int size;
+        Key key;
+        /**
+         * cells of the phase and orientation of the key, relative to their bounds
+         */
+        private long[] cells;
+        private int width;
+        private int height;
+
+        /**
+         * hashes a phase in every orientation
+         */
+        void add(SparseLife life) {
+            size = 0;
+            life.forEachAlive(this);
+            CellBounds bounds = life.getBounds();
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                long hash1 = 0;
+                long hash2 = 0;
+                for (int i = 0; i < size; i++) {
+                    long cell = orient(symmetry, xs[i] - bounds.getMinX(), ys[i] - bounds.getMinY(), bounds);
+                    hash1 ^= Diff.mix(cell);
+                    hash2 ^= Diff.mix2(cell);
+                }
+                Key candidate = new Key(hash1, hash2);
+                if (key != null && candidate.compareTo(key) >= 0)
+                    continue;
+                key = candidate;
+                cells = new long[size];
+                for (int i = 0; i < size; i++)
+                    cells[i] = orient(symmetry, xs[i] - bounds.getMinX(), ys[i] - bounds.getMinY(), bounds);
+                boolean transposed = (symmetry & 4) != 0;
+                width = transposed ? bounds.getHeight() : bounds.getWidth();
+                height = transposed ? bounds.getWidth() : bounds.getHeight();
+            }
+        }
+
+        /**
+         * @return a cell relative to the bounds in an orientation, packed like the cells of a {@link Hasher}
+         */
+        private static long orient(int symmetry, int x, int y, CellBounds bounds) {
+            if ((symmetry & 1) != 0)
+                x = bounds.getWidth() - 1 - x;
+            if ((symmetry & 2) != 0)
+                y = bounds.getHeight() - 1 - y;
+            return (symmetry & 4) != 0 ? (long) x << 32 | y : (long) y << 32 | x;
+        }
+
+        /**
+         * @return the cells of the key, rows separated by {@code $}, alive cells as {@code o}
+         */
+        String pattern() {
+            char[] pattern = new char[(width + 1) * height - 1];
+            Arrays.fill(pattern, '.');
+            for (int y = 1; y < height; y++)
+                pattern[y * (width + 1) - 1] = '$';
+            for (long cell : cells)
+                pattern[(int) (cell >>> 32) * (width + 1) + (int) cell] = 'o';
+            return new String(pattern);
+        }
+
+        @Override
+        public void visit(int x, int y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final long hash1;
+        final long hash2;
+
+        Key(long hash1, long hash2) {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return hash1 == key.hash1 && hash2 == key.hash2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash1;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int compared = Long.compare(hash1, other.hash1);
+            return compared != 0 ? compared : Long.compare(hash2, other.hash2);
+        }
+    }
+
+    /**
+     * alive cells with an open addressing index by position
+     */
+    private static final class Cells {
+        int[] x;
+        int[] y;
+        int size;
+        /**
+         * cell + 1, 0 if empty
+         */
+        private int[] index;
+        private int mask;
+
+        Cells(int capacity) {
+            x = new int[Math.max(capacity, 1)];
+            y = new int[Math.max(capacity, 1)];
+        }
+
+        void add(int cellX, int cellY) {
+            if (size == x.length) {
+                x = Arrays.copyOf(x, size * 2);
+                y = Arrays.copyOf(y, size * 2);
+            }
+            x[size] = cellX;
+            y[size] = cellY;
+            size++;
+        }
+
+        /**
+         * builds the index once all cells are added
+         */
+        void index() {
+            int capacity = Integer.highestOneBit(Math.max(size, 1)) << 2;
+            index = new int[capacity];
+            mask = capacity - 1;
+            for (int cell = 0; cell < size; cell++) {
+                int i = slot(x[cell], y[cell]);
+                while (index[i] != 0)
+                    i = (i + 1) & mask;
+                index[i] = cell + 1;
+            }
+        }
+
+        /**
+         * @return the cell at a position, -1 if it is dead
+         */
+        int find(int cellX, int cellY) {
+            for (int i = slot(cellX, cellY); index[i] != 0; i = (i + 1) & mask) {
+                int cell = index[i] - 1;
+                if (x[cell] == cellX && y[cell] == cellY)
+                    return cell;
+            }
+            return -1;
+        }
+
+        private int slot(int cellX, int cellY) {
+            return (int) Diff.mix((long) cellY << 32 | cellX & 0xffffffffL) & mask;
+        }
+    }
+
+    /**
+     * symmetric hashes of common objects of Conway's Game of Life
+     */
+    private static final class Names {
+        /**
+         * name and cells, rows separated by {@code $}, alive cells as {@code o}
+         */
+        private static final String[][] OBJECTS = {
+                {"block", "oo$oo"},
+                {"beehive", ".oo.$o..o$.oo."},
+                {"loaf", ".oo.$o..o$.o.o$..o."},
+                {"boat", "oo.$o.o$.o."},
+                {"ship", "oo.$o.o$.oo"},
+                {"tub", ".o.$o.o$.o."},
+                {"pond", ".oo.$o..o$o..o$.oo."},
+                {"blinker", "ooo"},
+                {"toad", ".ooo$ooo."},
+                {"beacon", "oo..$oo..$..oo$..oo"},
+                {"pulsar", "..ooo...ooo..$.............$o....o.o....o$o....o.o....o$o....o.o....o$..ooo...ooo..$"
+                        + ".............$..ooo...ooo..$o....o.o....o$o....o.o....o$o....o.o....o$.............$"
+                        + "..ooo...ooo.."},
+                {"pentadecathlon", "..o....o..$oo.oooo.oo$..o....o.."},
+                {"glider", ".o.$..o$ooo"},
+                {"lightweight spaceship", ".o..o$o....$o...o$oooo."},
+                {"middleweight spaceship", "...o..$.o...o$o.....$o....o$ooooo."},
+                {"heavyweight spaceship", "...oo..$.o....o$o......$o.....o$oooooo."},
+        };
+
+        static final Map<Key, String> NAMES = new HashMap<>();
+
+        static {
+            Classifier classifier = new Classifier(Rule.CONWAY, 64, DEFAULT_CACHE_SIZE, false);
+            for (String[] object : OBJECTS) {
+                String[] rows = object[1].split("\\$");
+                SparseLife life = new SparseLife(Rule.CONWAY);
+                for (int y = 0; y < rows.length; y++)
+                    for (int x = 0; x < rows[y].length(); x++)
+                        if (rows[y].charAt(x) == 'o')
+                            life.setCell(true, x, y);
+                CellBounds bounds = life.getBounds();
+                Hasher hasher = new Hasher(bounds.getMinX(), bounds.getMinY());
+                life.forEachAlive(hasher);
+                Classification classification = classifier.classification(
+                        classifier.simulate(life, new Key(hasher.hash1, hasher.hash2)));
+                // the symmetric hash is the same in every orientation
+                NAMES.put(new Key(classification.getSymmetricHash1(), classification.getSymmetricHash2()), object[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * group of alive cells found by a {@link Classifier}, no cell of another group is closer than 3 cells, so groups do
+ * not interact in the next generation
+ *
+ * @author Henrik Drefs
+ */
+public final class Component {
+
+    private final CellBounds bounds;
+    private final long population;
+    private final Classification classification;
+
+    Component(CellBounds bounds, long population, Classification classification) {
+        this.bounds = bounds;
+        this.population = population;
+        this.classification = classification;
+    }
+
+    /**
+     * @return area of the cells, may exceed the field of a torus where the group wraps around
+     */
+    public CellBounds getBounds() {
+        return bounds;
+    }
+
+    public long getPopulation() {
+        return population;
+    }
+
+    public Classification getClassification() {
+        return classification;
+    }
+
+    @Override
+    public String toString() {
+        return classification + " at " + bounds;
+    }
+}
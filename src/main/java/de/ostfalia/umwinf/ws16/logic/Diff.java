@@ -0,0 +1,69 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * difference between two generations of a {@link Field}, may be accumulated for a band of rows and merged
+ *
+ * @author Henrik Drefs
+ */
+final class Diff {
+
+    /**
+     * to be xor-ed onto the hash of the old field
+     */
+    long hash1;
+    long hash2;
+    long flips;
+    long births;
+    /**
+     * flipped cells, {@code null} if nobody is interested
+     */
+    final ChangeSet changes;
+
+    Diff(ChangeSet changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * empties the diff for reuse in the next step
+     */
+    void clear() {
+        hash1 = 0;
+        hash2 = 0;
+        flips = 0;
+        births = 0;
+        if (changes != null)
+            changes.clear();
+    }
+
+    /**
+     * merges the diff of the following band into this one
+     */
+    void merge(Diff other) {
+        hash1 ^= other.hash1;
+        hash2 ^= other.hash2;
+        flips += other.flips;
+        births += other.births;
+        if (changes != null)
+            changes.addAll(other.changes);
+    }
+
+    /**
+     * murmur3 finalizer
+     */
+    static long mix(long z) {
+        z ^= z >>> 33;
+        z *= 0xff51afd7ed558ccdL;
+        z ^= z >>> 33;
+        z *= 0xc4ceb9fe1a85ec53L;
+        return z ^ z >>> 33;
+    }
+
+    /**
+     * splitmix64 finalizer, independent of {@link #mix(long)}
+     */
+    static long mix2(long z) {
+        z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+}
@@ -0,0 +1,269 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.nio.LongBuffer;
+
+/**
+ * changes of a {@link GameOfLife} made by {@link GameOfLife#edit(java.util.function.Consumer)}, analysis is reset and
+ * the listeners are notified once after all changes
+ * <p>
+ * areas are changed 64 cells at a time, the hash is updated per changed word. Cells outside the field are ignored, so
+ * patterns may be placed partly outside.
+ *
+ * @author Henrik Drefs
+ */
+public final class Edit {
+
+    private final GameOfLife gol;
+    private final Field field;
+    private final int words;
+    private long liveDelta;
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = -1;
+    private int maxY = -1;
+    private boolean finished;
+
+    Edit(GameOfLife gol, Field field) {
+        this.gol = gol;
+        this.field = field;
+        words = (field.columns + 63) >>> 6;
+    }
+
+    /**
+     * sets a cell to a given state
+     */
+    public void set(boolean state, int x, int y) {
+        checkOpen();
+        if (x < 0 || y < 0 || x >= field.columns || y >= field.rows || field.get(x, y) == state)
+            return;
+        field.set(x, y, state);
+        liveDelta += state ? 1 : -1;
+        changed(x, y, x, y);
+    }
+
+    /**
+     * sets all cells of an area to a given state
+     */
+    public void fill(CellBounds area, boolean state) {
+        checkOpen();
+        int fromX = Math.max(area.getMinX(), 0);
+        int toX = Math.min(area.getMaxX(), field.columns - 1);
+        int fromY = Math.max(area.getMinY(), 0);
+        int toY = Math.min(area.getMaxY(), field.rows - 1);
+        if (fromX > toX || fromY > toY)
+            return;
+        boolean changed = false;
+        for (int y = fromY; y <= toY; y++)
+            for (int k = fromX >>> 6; k <= toX >>> 6; k++)
+                changed |= write((long) y * words + k, state ? -1L : 0, mask(k, fromX, toX));
+        if (changed)
+            changed(fromX, fromY, toX, toY);
+    }
+
+    /**
+     * sets the alive cells of a row at {@code (x, y)}, dead cells of the row leave the field unchanged
+     *
+     * @param cells cell {@code i} of the row in bit {@code i & 63} of {@code cells[i >> 6]}
+     * @param width number of cells of the row
+     * @throws IllegalArgumentException if {@code cells} holds less than {@code width} cells
+     */
+    public void stampRow(long[] cells, int width, int x, int y) {
+        checkWidth(cells, width);
+        row(cells, 0, width, x, y, false);
+    }
+
+    /**
+     * sets the cells of a row at {@code (x, y)}, dead cells included
+     *
+     * @param cells cell {@code i} of the row in bit {@code i & 63} of {@code cells[i >> 6]}
+     * @param width number of cells of the row
+     * @throws IllegalArgumentException if {@code cells} holds less than {@code width} cells
+     */
+    public void pasteRow(long[] cells, int width, int x, int y) {
+        checkWidth(cells, width);
+        row(cells, 0, width, x, y, true);
+    }
+
+    /**
+     * sets the alive cells of a pattern, the top left corner of its bounds at {@code (x, y)}, dead cells of the
+     * pattern leave the field unchanged
+     *
+     * @param pattern may be the edited game, its cells before this call are used
+     */
+    public void stamp(LifeEngine pattern, int x, int y) {
+        checkOpen();
+        CellBounds bounds = pattern.getBounds();
+        if (bounds == null)
+            return;
+        Field source = fieldOf(pattern);
+        if (source != null)
+            copy(source, bounds, x, y, false);
+        else
+            pattern.forEachAlive((cellX, cellY) ->
+                    set(true, x + cellX - bounds.getMinX(), y + cellY - bounds.getMinY()));
+    }
+
+    /**
+     * sets the cells of an area of another board, dead cells included, the top left corner of the area at
+     * {@code (x, y)}
+     *
+     * @param source may be the edited game, its cells before this call are used
+     */
+    public void paste(LifeEngine source, CellBounds area, int x, int y) {
+        checkOpen();
+        Field sourceField = fieldOf(source);
+        if (sourceField != null) {
+            copy(sourceField, area, x, y, true);
+            return;
+        }
+        fill(new CellBounds(x, y, x + area.getWidth() - 1, y + area.getHeight() - 1), false);
+        source.forEachAlive((cellX, cellY) -> {
+            if (area.contains(cellX, cellY))
+                set(true, x + cellX - area.getMinX(), y + cellY - area.getMinY());
+        });
+    }
+
+    /**
+     * sets the cells of an area of a snapshot, dead cells included, the top left corner of the area at
+     * {@code (x, y)}
+     */
+    public void paste(Snapshot source, CellBounds area, int x, int y) {
+        checkOpen();
+        copy(source.getField(), area, x, y, true);
+    }
+
+    /**
+     * @return the field of a bounded game, shared if it is the edited one so it is not changed while copied,
+     * {@code null} for other engines
+     */
+    private Field fieldOf(LifeEngine engine) {
+        if (engine == gol)
+            return field.share();
+        if (engine instanceof GameOfLife)
+            return ((GameOfLife) engine).getCurrentField();
+        return null;
+    }
+
+    /**
+     * copies an area of a field row by row
+     */
+    private void copy(Field source, CellBounds area, int x, int y, boolean replace) {
+        int fromX = Math.max(area.getMinX(), 0);
+        int toX = Math.min(area.getMaxX(), source.columns - 1);
+        int fromY = Math.max(area.getMinY(), 0);
+        int toY = Math.min(area.getMaxY(), source.rows - 1);
+        if (fromX > toX || fromY > toY)
+            return;
+        x += fromX - area.getMinX();
+        y += fromY - area.getMinY();
+        long[] cells = new long[(source.columns + 63) >>> 6];
+        LongBuffer buffer = LongBuffer.wrap(cells);
+        for (int sourceY = fromY; sourceY <= toY; sourceY++) {
+            int targetY = y + sourceY - fromY;
+            if (targetY < 0 || targetY >= field.rows)
+                continue;
+            buffer.clear();
+            source.writeRows(buffer, sourceY, sourceY + 1);
+            row(cells, fromX, toX - fromX + 1, x, targetY, replace);
+        }
+    }
+
+    /**
+     * writes {@code width} cells of a row starting at cell {@code offset} of {@code cells} to {@code (x, y)}
+     */
+    private void row(long[] cells, int offset, int width, int x, int y, boolean replace) {
+        checkOpen();
+        if (y < 0 || y >= field.rows)
+            return;
+        int fromX = Math.max(x, 0);
+        int toX = (int) Math.min((long) x + width, field.columns) - 1;
+        if (fromX > toX)
+            return;
+        boolean changed = false;
+        long index = (long) y * words;
+        for (int k = fromX >>> 6; k <= toX >>> 6; k++) {
+            long word = bitsAt(cells, offset + ((long) k << 6) - x);
+            long mask = mask(k, fromX, toX);
+            changed |= replace ? write(index + k, word, mask) : write(index + k, -1L, mask & word);
+        }
+        if (changed)
+            changed(fromX, y, toX, y);
+    }
+
+    /**
+     * @return 64 cells of a row starting at cell {@code start}, which is greater than -64, cells outside the row dead
+     */
+    private static long bitsAt(long[] cells, long start) {
+        if (start < 0)
+            return cells.length == 0 ? 0 : cells[0] << -start;
+        int word = (int) (start >>> 6);
+        int bit = (int) start & 63;
+        long bits = word < cells.length ? cells[word] >>> bit : 0;
+        if (bit != 0 && word + 1 < cells.length)
+            bits |= cells[word + 1] << 64 - bit;
+        return bits;
+    }
+
+    /**
+     * @return the bits of word {@code k} of a row that lie within the columns {@code fromX} to {@code toX}
+     */
+    private static long mask(int k, int fromX, int toX) {
+        long mask = -1L;
+        int from = fromX - (k << 6);
+        if (from > 0)
+            mask &= -1L << from;
+        int to = toX - (k << 6);
+        if (to < 63)
+            mask &= -1L >>> 63 - to;
+        return mask;
+    }
+
+    /**
+     * sets the bits of {@code mask} of a word to those of {@code cells}
+     *
+     * @return whether a cell flipped
+     */
+    private boolean write(long index, long cells, long mask) {
+        long old = field.getWord(index);
+        long flip = (old ^ cells) & mask;
+        if (flip == 0)
+            return false;
+        field.flipWord(index, flip);
+        liveDelta += Long.bitCount(flip & cells) - Long.bitCount(flip & old);
+        return true;
+    }
+
+    private void changed(int fromX, int fromY, int toX, int toY) {
+        minX = Math.min(minX, fromX);
+        minY = Math.min(minY, fromY);
+        maxX = Math.max(maxX, toX);
+        maxY = Math.max(maxY, toY);
+    }
+
+    private static void checkWidth(long[] cells, int width) {
+        if (width < 0 || (long) cells.length << 6 < width)
+            throw new IllegalArgumentException("width invalid");
+    }
+
+    private void checkOpen() {
+        if (finished)
+            throw new IllegalStateException("edit finished");
+    }
+
+    /**
+     * ends the edit, called once by the game
+     *
+     * @return change of the number of alive cells
+     */
+    long finish() {
+        finished = true;
+        return liveDelta;
+    }
+
+    /**
+     * @return the area containing every flipped cell, {@code null} if none flipped
+     */
+    CellBounds getChanged() {
+        return maxX < 0 ? null : new CellBounds(minX, minY, maxX, maxY);
+    }
+}
@@ -0,0 +1,162 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.nio.LongBuffer;
+
+/**
+ * storage backend for the cells of a {@link GameOfLife}
+ *
+ * @author Henrik Drefs
+ */
+abstract class Field {
+
+    final int rows;
+    final int columns;
+    /**
+     * 128 bit zobrist hash of the alive cells, kept up to date by {@link #set(int, int, boolean)} and the diff of
+     * {@link #step(Field, int, int, Diff)}, the empty field hashes to 0
+     */
+    long hash1;
+    long hash2;
+    Topology topology = Topology.DEAD;
+    Rule rule = Rule.CONWAY;
+    /**
+     * row {@code y} is owned by this field if {@code rowEpochs[y] == epoch}, other rows may be shared with fields
+     * returned by {@link #share()} and are copied before they are changed
+     */
+    private final long[] rowEpochs;
+    private long epoch;
+
+    /**
+     * @param rows number of rows, rows are numbered from 0 to {@code rows + 1} for {@link #claimRow(int)}
+     */
+    Field(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        rowEpochs = new long[rows + 2];
+    }
+
+    /**
+     * to be called before row {@code y} is changed, the row is owned by this field afterwards
+     *
+     * @return whether the row has to be copied first as it may be shared
+     */
+    final boolean claimRow(int y) {
+        if (rowEpochs[y] == epoch)
+            return false;
+        rowEpochs[y] = epoch;
+        return true;
+    }
+
+    /**
+     * marks all rows as shared in constant time
+     */
+    final void shareRows() {
+        epoch++;
+    }
+
+    abstract boolean get(int x, int y);
+
+    /**
+     * sets a cell and updates the hash
+     */
+    abstract void set(int x, int y, boolean state);
+
+    /**
+     * computes rows {@code from} (inclusive) to {@code to} (exclusive) of the next generation into {@code next} and
+     * accumulates the differences to this field, flipped cells are added in row-major order. Only reads this field,
+     * so disjoint row bands starting at multiples of {@link #bandAlignment()} may be computed concurrently.
+     * <p>
+     * fields may skip regions that did not change in the last step, so {@code next} has to hold the generation this
+     * field was computed from, unless {@link #markAllChanged()} was called since
+     *
+     * @param next field of the same type and size
+     */
+    abstract void step(Field next, int from, int to, Diff diff);
+
+    /**
+     * called once before the row bands of a step are computed
+     */
+    void prepareStep() {
+    }
+
+    /**
+     * @return row count that row bands passed to {@link #step(Field, int, int, Diff)} should be a multiple of
+     */
+    int bandAlignment() {
+        return 1;
+    }
+
+    /**
+     * makes the next step compute every cell, e.g. because {@code next} is a new field
+     */
+    void markAllChanged() {
+    }
+
+    /**
+     * @return an empty field of the same type, size, topology and rule
+     */
+    abstract Field create();
+
+    /**
+     * copies only the row references, the rows are shared until either field changes them
+     *
+     * @return a field of the same cells, type, size, topology and rule
+     */
+    abstract Field share();
+
+    abstract long countAlive();
+
+    abstract void forEachAlive(LifeEngine.CellVisitor visitor);
+
+    abstract boolean allDead();
+
+    /**
+     * @return the cells as {@code [row][column]} array
+     */
+    abstract boolean[][] toArray();
+
+    /**
+     * puts rows {@code from} (inclusive) to {@code to} (exclusive) into a buffer, each row as
+     * {@code ceil(columns / 64)} longs with cell x in bit {@code x & 63} of long {@code x >> 6}
+     */
+    abstract void writeRows(LongBuffer out, int from, int to);
+
+    /**
+     * gets rows in the layout of {@link #writeRows(LongBuffer, int, int)}, the hash is not updated
+     *
+     * @throws IllegalArgumentException if a bit at or beyond {@code columns} is set
+     */
+    abstract void readRows(LongBuffer in, int from, int to);
+
+    /**
+     * recomputes the hash from the cells
+     */
+    abstract void rehash();
+
+    /**
+     * visits runs of rows that contain every cell differing from the field this field was computed from, in
+     * ascending order and without knowing that field, so it is cheap enough for every step. Edits of this field
+     * since are taken into account.
+     */
+    abstract void forEachChangedRows(RowsVisitor visitor);
+
+    /**
+     * @return word {@code index} of the layout of {@link #writeRows(LongBuffer, int, int)}, with index
+     * {@code y * ceil(columns / 64) + (x >> 6)}
+     */
+    abstract long getWord(long index);
+
+    /**
+     * flips the cells set in {@code mask} of a word in the layout of {@link #writeRows(LongBuffer, int, int)} and
+     * updates the hash
+     */
+    abstract void flipWord(long index, long mask);
+
+    interface RowsVisitor {
+        /**
+         * @param from first row of the run
+         * @param to   row after the run
+         */
+        void visit(int from, int to);
+    }
+}
@@ -0,0 +1,17 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * gets notified once per change of a {@link GameOfLife}, i.e. once per generation or edited cell
+ *
+ * @author Henrik Drefs
+ */
+public interface FieldListener {
+
+    /**
+     * called by the thread changing the game
+     *
+     * @param game    changed game
+     * @param changes cells that flipped, only valid during the call
+     */
+    void fieldChanged(GameOfLife game, ChangeSet changes);
+}
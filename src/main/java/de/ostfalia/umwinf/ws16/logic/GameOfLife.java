@@ -1,69 +1,214 @@
 package de.ostfalia.umwinf.ws16.logic;
 
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Observable;
-import java.util.Queue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * Conway's Game of Life implementation, offers analysis like pattern recognition
  *
  * @author Henrik Drefs
  */
-public class GameOfLife extends Observable implements Cloneable {
+public class GameOfLife implements LifeEngine, Cloneable {
 
-    private boolean[][] field;
+    private final Storage storage;
+    private Field field;
+    /**
+     * buffer for the next generation, holds the previous generation, {@code null} if not allocated yet
+     */
+    private Field spare;
+    private long liveCount = 0;
     private long countAdvances = 0;
     private boolean fieldStatic = false;
     private int cyclicPeriod = -1;
-    private Queue<boolean[][]> history;
+    /**
+     * hashes of the last generations, a full field is only compared against its predecessor
+     */
+    private HashHistory history;
+    /**
+     * copied on every change, so notifying needs neither a lock nor an iterator
+     */
+    private volatile FieldListener[] listeners = new FieldListener[0];
     /**
      * keep track defines how many stages back the game is saved to be available for pattern recognition
      */
     public static final int DEFAULT_KEEP_TRACK = 100;
     private int keepTrack = DEFAULT_KEEP_TRACK;
+    /**
+     * fields with less cells than the threshold are advanced sequentially, larger fields are split into row bands of
+     * about this many cells
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private int parallelism = 1;
+    /**
+     * pool for parallel advancing, created by the first parallel step, {@code null} if sequential or not needed yet
+     */
+    private ForkJoinPool pool;
+    /**
+     * reused by every sequential step, so advancing does not allocate
+     */
+    private Diff diff = new Diff(null);
+    /**
+     * reused by every sequential step while listeners are registered, {@code null} if not needed yet
+     */
+    private Diff changesDiff;
+    /**
+     * tasks of the parallel step, reused as long as the bands stay the same, {@code null} if not needed yet
+     */
+    private Step step;
+    /**
+     * counters filled by every advance, {@code null} if not measured
+     */
+    private Metrics metrics;
 
     /**
-     * Constructor for a {@link GameOfLife}
+     * Constructor for a bit-packed {@link GameOfLife}
      *
      * @param rows    number of rows
      * @param columns number of columns
      * @throws IllegalArgumentException if {@code rows} or {@code columns} is invalid
      */
     public GameOfLife(int rows, int columns) {
+        this(rows, columns, Storage.BIT_PACKED);
+    }
+
+    /**
+     * Constructor for a {@link GameOfLife}
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @param storage how the cells are stored and advanced
+     * @throws IllegalArgumentException if {@code rows} or {@code columns} is invalid
+     */
+    public GameOfLife(int rows, int columns, Storage storage) {
         if (rows <= 0 || columns <= 0)
             throw new IllegalArgumentException("size invalid");
 
-        field = new boolean[rows][columns];
-        history = new LinkedList<>();
+        this.storage = storage;
+        field = storage.create(rows, columns);
+        history = new HashHistory(keepTrack);
     }
 
     /**
-     * sets a cell to a given state, resets analysis and notifies observer about the change
+     * continues a snapshot, see {@link Snapshot#toGame()}
+     */
+    GameOfLife(Snapshot snapshot) {
+        storage = snapshot.getStorage();
+        field = snapshot.getField().share();
+        liveCount = snapshot.countAlive();
+        countAdvances = snapshot.countAdvances();
+        fieldStatic = snapshot.isFieldStatic();
+        cyclicPeriod = snapshot.getCyclicPeriod();
+        keepTrack = snapshot.getKeepTrack();
+        history = snapshot.getHistory().resize(keepTrack);
+    }
+
+    public synchronized void addListener(FieldListener listener) {
+        FieldListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.listeners = listeners;
+    }
+
+    public synchronized void removeListener(FieldListener listener) {
+        FieldListener[] listeners = this.listeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                FieldListener[] removed = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                this.listeners = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * sets a cell to a given state, resets analysis and notifies listeners about the change
      *
      * @param state new state
      * @param x     x-coordinate of cell to change
      * @param y     y-coordinate of cell to change
      */
+    @Override
     public void setCell(boolean state, int x, int y) {
-        field[y][x] = state;
+        boolean flipped = field.get(x, y) != state;
+        field.set(x, y, state);
+        if (flipped)
+            liveCount += state ? 1 : -1;
+        resetAnalysis();
+        if (flipped && listeners.length > 0) {
+            ChangeSet changes = new ChangeSet(1);
+            changes.add(x, y, state);
+            notifyListeners(changes);
+        }
+    }
+
+    /**
+     * applies many changes at once, e.g. loading or pasting a pattern, resets analysis once and notifies the listeners
+     * once if a cell flipped, also if {@code changes} throws
+     *
+     * @param changes makes the changes, the {@link Edit} is only valid during the call
+     */
+    public void edit(Consumer<Edit> changes) {
+        Edit edit = new Edit(this, field);
+        try {
+            changes.accept(edit);
+        } finally {
+            liveCount += edit.finish();
+            replaced(edit.getChanged());
+        }
+    }
+
+    /**
+     * to be called after cells of the current field were written without updating the hash, e.g. by
+     * {@link Field#readRows(java.nio.LongBuffer, int, int)}, resets analysis and notifies the listeners once
+     *
+     * @param replaced area of the written cells
+     */
+    void cellsReplaced(CellBounds replaced) {
+        field.rehash();
+        field.markAllChanged();
+        liveCount = field.countAlive();
+        replaced(replaced);
+    }
+
+    /**
+     * resets analysis and notifies the listeners about an area of changed cells
+     *
+     * @param replaced {@code null} if no cell changed
+     */
+    private void replaced(CellBounds replaced) {
+        resetAnalysis();
+        if (replaced != null && listeners.length > 0) {
+            ChangeSet changes = new ChangeSet(1);
+            changes.setReplaced(replaced);
+            notifyListeners(changes);
+        }
+    }
+
+    private void resetAnalysis() {
         countAdvances = 0;
         fieldStatic = false;
         cyclicPeriod = -1;
         history.clear();
-        setChanged();
-        notifyObservers(new ObserverArgs(state, x, y));
     }
 
+    @Override
     public boolean getCell(int x, int y) {
-        return field[y][x];
+        return field.get(x, y);
     }
 
     /**
-     * @return an unmodifiable view of the field
+     * @return a copy of the cells as {@code [row][column]} array
      */
     public boolean[][] getField() {
-        return Arrays.copyOf(field, field.length);
+        return field.toArray();
+    }
+
+    public Storage getStorage() {
+        return storage;
     }
 
     public boolean isFieldStatic() {
@@ -78,6 +223,7 @@ public class GameOfLife extends Observable implements Cloneable {
         return cyclicPeriod;
     }
 
+    @Override
     public long countAdvances() {
         return countAdvances;
     }
@@ -85,78 +231,103 @@ public class GameOfLife extends Observable implements Cloneable {
     /**
      * advances the field by 1 generation
      */
+    @Override
     public void advance() {
         if (fieldStatic)
             return;
 
+        Metrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
         countAdvances++;
-        boolean[][] nextField = new boolean[getRowCount()][getColumnCount()];
-        for (int y = 0; y < field.length; y++) {
-            boolean[] row = field[y];
-            for (int x = 0; x < row.length; x++) {
-                boolean nextState = getNextState(x, y);
-                nextField[y][x] = nextState;
-                setChanged();
-                notifyObservers(new ObserverArgs(nextState, x, y));
+        if (spare == null) {
+            spare = field.create();
+            field.markAllChanged();
+        }
+        Field nextField = spare;
+        field.prepareStep();
+        boolean collectChanges = listeners.length > 0;
+        Diff diff;
+        if (parallelism > 1 && (long) field.rows * field.columns >= parallelThreshold) {
+            if (pool == null)
+                pool = new ForkJoinPool(parallelism);
+            if (step == null || step.collectChanges != collectChanges || step.isBroken()) {
+                int alignment = field.bandAlignment();
+                int bandRows = (Math.max(1, parallelThreshold / field.columns) + alignment - 1) / alignment * alignment;
+                step = new Step(field.rows, bandRows, collectChanges);
             }
+            diff = step.run(pool, field, nextField);
+        } else {
+            if (collectChanges && changesDiff == null)
+                changesDiff = new Diff(new ChangeSet(64));
+            diff = collectChanges ? changesDiff : this.diff;
+            diff.clear();
+            field.step(nextField, 0, field.rows, diff);
         }
-        if (Arrays.deepEquals(field, nextField) || allDead()) {
+        liveCount += 2 * diff.births - diff.flips;
+        long computed = metrics == null ? 0 : System.nanoTime();
+        nextField.hash1 = field.hash1 ^ diff.hash1;
+        nextField.hash2 = field.hash2 ^ diff.hash2;
+        if (diff.flips == 0) {
             fieldStatic = true;
         } else if (cyclicPeriod == -1) {
-            // check for repetitive pattern
-            int i = history.size();
-            for (boolean[][] old : history) {
-                if (Arrays.deepEquals(old, nextField)) {
-                    cyclicPeriod = i;
-                    break;
-                }
-                i--;
-            }
+            // check for repetitive pattern, 128 bit hashes make false positives practically impossible
+            long generation = history.find(nextField.hash1, nextField.hash2);
+            if (generation != -1)
+                cyclicPeriod = (int) (countAdvances - generation);
         }
         // keep track
-        if (history.size() >= keepTrack)
-            history.poll();
-        history.add(nextField);
-        this.field = nextField;
+        history.add(nextField.hash1, nextField.hash2, countAdvances);
+        spare = field;
+        field = nextField;
+        long detected = metrics == null ? 0 : System.nanoTime();
+        if (diff.changes != null) {
+            diff.changes.setGeneration(countAdvances);
+            notifyListeners(diff.changes);
+        }
+        if (metrics != null) {
+            long end = System.nanoTime();
+            metrics.advanced(diff.births, diff.flips - diff.births, liveCount, computed - start, detected - computed,
+                    end - detected, history.bytes(), end);
+        }
+    }
+
+    private void notifyListeners(ChangeSet changes) {
+        for (FieldListener listener : listeners)
+            listener.fieldChanged(this, changes);
     }
 
+    @Override
     public boolean allDead() {
-        for (boolean[] row : field)
-            for (boolean isAlive : row)
-                if (isAlive)
-                    return false;
-        return true;
+        return liveCount == 0;
     }
 
+    @Override
     public long countAlive() {
-        long count = 0;
-        for (boolean[] row : field)
-            for (boolean isAlive : row)
-                if (isAlive)
-                    count++;
-        return count;
-    }
-
-    /**
-     * @param x x-coordinate of cell to inspect
-     * @param y y-coordinate of cell to inspect
-     * @return the state of the given cell in the next generation
-     */
-    private boolean getNextState(int x, int y) {
-        // get number of alive neighbors
-        int aliveNeighbors = 0;
-        for (int row = y - 1; row <= y + 1; row++) {
-            for (int col = x - 1; col <= x + 1; col++) {
-                // if this cell or out of bounds
-                if ((row == y && col == x) || row < 0 || col < 0 || row >= field.length || col >= field[0].length) {
-                    continue;
-                }
-                if (field[row][col]) {
-                    aliveNeighbors++;
-                }
-            }
-        }
-        return aliveNeighbors == 3 || field[y][x] && aliveNeighbors == 2;
+        return liveCount;
+    }
+
+    /**
+     * @return the whole field
+     */
+    @Override
+    public CellBounds getBounds() {
+        return new CellBounds(0, 0, field.columns - 1, field.rows - 1);
+    }
+
+    @Override
+    public void forEachAlive(CellVisitor visitor) {
+        field.forEachAlive(visitor);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics counters to fill by every advance, {@code null} to stop measuring
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
     }
 
     public int getKeepTrack() {
@@ -165,21 +336,147 @@ public class GameOfLife extends Observable implements Cloneable {
 
     public void setKeepTrack(int keepTrack) {
         this.keepTrack = keepTrack;
+        history = history.resize(keepTrack);
+    }
+
+    @Override
+    public Rule getRule() {
+        return field.rule;
+    }
+
+    /**
+     * changes the rule that computes the next generation and resets analysis
+     */
+    public void setRule(Rule rule) {
+        field.rule = rule;
+        field.markAllChanged();
+        if (spare != null)
+            spare.rule = rule;
+        resetAnalysis();
+    }
+
+    public Topology getTopology() {
+        return field.topology;
+    }
+
+    /**
+     * changes what lies beyond the border of the field and resets analysis
+     */
+    public void setTopology(Topology topology) {
+        field.topology = topology;
+        field.markAllChanged();
+        if (spare != null)
+            spare.topology = topology;
+        resetAnalysis();
+    }
+
+    /**
+     * @return number of threads used to advance large fields
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * sets the number of threads used to advance fields larger than the parallel threshold, results are identical
+     * to sequential advancing
+     *
+     * @param parallelism number of threads, 1 for sequential advancing
+     * @throws IllegalArgumentException if {@code parallelism} is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism invalid");
+        if (parallelism == this.parallelism)
+            return;
+        this.parallelism = parallelism;
+        if (pool != null)
+            pool.shutdown();
+        pool = null;
+        step = null;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param parallelThreshold minimum number of cells for a parallel advance, also the size of a row band
+     * @throws IllegalArgumentException if {@code parallelThreshold} is less than 1
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1)
+            throw new IllegalArgumentException("threshold invalid");
+        this.parallelThreshold = parallelThreshold;
+        step = null;
     }
 
     public int getRowCount() {
-        return field.length;
+        return field.rows;
     }
 
     public int getColumnCount() {
-        if (field.length == 0)
-            return 0;
-        return field[0].length;
+        return field.columns;
+    }
+
+    /**
+     * @return the current generation, only to be read while the game is not advanced
+     */
+    Field getCurrentField() {
+        return field;
+    }
+
+    /**
+     * @return the generation before the current one unless the game was edited since, {@code null} if not advanced yet
+     */
+    Field getPreviousField() {
+        return spare;
     }
 
+    HashHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * takes over the analysis of a game the current field was restored from
+     */
+    void restore(long countAdvances, boolean fieldStatic, int cyclicPeriod, HashHistory history) {
+        liveCount = field.countAlive();
+        field.markAllChanged();
+        this.countAdvances = countAdvances;
+        this.fieldStatic = fieldStatic;
+        this.cyclicPeriod = cyclicPeriod;
+        this.history = history;
+    }
+
+    /**
+     * takes an immutable snapshot of the current generation, only copies the row references, so it may be taken
+     * after every advance
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(storage, field.share(), liveCount, countAdvances, fieldStatic, cyclicPeriod, keepTrack,
+                history.resize(keepTrack));
+    }
+
+    /**
+     * @return an independent game with the same cells, analysis and settings but without listeners, the rows are
+     * shared until they change
+     */
     public GameOfLife clone() {
         try {
-            return (GameOfLife) super.clone();
+            GameOfLife clone = (GameOfLife) super.clone();
+            // rows are copied before either game changes them
+            clone.field = field.share();
+            clone.spare = null;
+            clone.history = history.resize(keepTrack);
+            clone.listeners = new FieldListener[0];
+            clone.metrics = null;
+            // a pool is shut down when the parallelism of its game changes, the clone creates its own when needed
+            clone.pool = null;
+            clone.diff = new Diff(null);
+            clone.changesDiff = null;
+            clone.step = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             // is supported
             return null;
@@ -187,29 +484,162 @@ public class GameOfLife extends Observable implements Cloneable {
     }
 
     /**
-     * arguments for observer notification
+     * tree of {@link StepTask}s that is built once and run again for every step, wakes the thread waiting for the
+     * step when the tree completed
+     */
+    private static final class Step extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+        private final boolean collectChanges;
+        private final StepTask tree;
+        private volatile Thread waiter;
+        private volatile boolean finished;
+        private volatile Throwable failure;
+
+        Step(int rows, int bandRows, boolean collectChanges) {
+            this.collectChanges = collectChanges;
+            tree = new StepTask(this, 0, rows, bandRows, collectChanges);
+        }
+
+        /**
+         * runs the tree in a pool and parks until it completed, unlike {@link ForkJoinPool#invoke} waiting does not
+         * allocate on newer JDKs
+         *
+         * @return diff of the whole field
+         */
+        Diff run(ForkJoinPool pool, Field field, Field next) {
+            tree.prepare(field, next);
+            waiter = Thread.currentThread();
+            finished = false;
+            pool.execute(tree);
+            while (!finished)
+                LockSupport.park(this);
+            if (failure instanceof Error)
+                throw (Error) failure;
+            if (failure != null)
+                throw (RuntimeException) failure;
+            return tree.diff;
+        }
+
+        /**
+         * @return whether a step failed, the tasks can not be run again
+         */
+        boolean isBroken() {
+            return failure != null;
+        }
+
+        @Override
+        public void compute() {
+            // never executed, only completed by the tree
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            finished = true;
+            LockSupport.unpark(waiter);
+        }
+
+        @Override
+        public boolean onExceptionalCompletion(Throwable ex, CountedCompleter<?> caller) {
+            failure = ex;
+            finished = true;
+            LockSupport.unpark(waiter);
+            return true;
+        }
+    }
+
+    /**
+     * computes a band of rows of the next generation and its diff. Completes through the pending counts only, the
+     * pool never marks the task done and it can be executed again as soon as its {@link Step} completed.
      */
-    public static class ObserverArgs {
-        private boolean state;
-        private int x;
-        private int y;
+    private static final class StepTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final Diff diff;
+        /**
+         * halves of the band, {@code null} if the band is small enough
+         */
+        private final StepTask upper;
+        private final StepTask lower;
+        private Field field;
+        private Field next;
 
-        ObserverArgs(boolean state, int x, int y) {
-            this.state = state;
-            this.x = x;
-            this.y = y;
+        StepTask(CountedCompleter<?> completer, int from, int to, int bandRows, boolean collectChanges) {
+            super(completer);
+            this.from = from;
+            this.to = to;
+            diff = new Diff(collectChanges ? new ChangeSet(64) : null);
+            if (to - from <= bandRows) {
+                upper = null;
+                lower = null;
+            } else {
+                // split at a band boundary, keeps the bands aligned
+                int bands = (to - from + bandRows - 1) / bandRows;
+                int middle = from + bands / 2 * bandRows;
+                upper = new StepTask(this, from, middle, bandRows, collectChanges);
+                lower = new StepTask(this, middle, to, bandRows, collectChanges);
+            }
         }
 
-        public boolean getState() {
-            return state;
+        /**
+         * sets the fields of the next step for the whole tree
+         */
+        void prepare(Field field, Field next) {
+            this.field = field;
+            this.next = next;
+            if (upper != null) {
+                upper.prepare(field, next);
+                lower.prepare(field, next);
+            }
         }
 
-        public int getX() {
-            return x;
+        @Override
+        public void compute() {
+            if (upper != null) {
+                // completed by the half that finishes last
+                setPendingCount(1);
+                lower.fork();
+                upper.compute();
+                return;
+            }
+            diff.clear();
+            field.step(next, from, to, diff);
+            tryComplete();
         }
 
-        public int getY() {
-            return y;
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (upper == null)
+                return;
+            diff.clear();
+            diff.merge(upper.diff);
+            diff.merge(lower.diff);
         }
     }
+
+    /**
+     * available storage backends
+     */
+    public enum Storage {
+        /**
+         * one boolean per cell
+         */
+        BOOLEAN {
+            @Override
+            Field create(int rows, int columns) {
+                return new BooleanField(rows, columns);
+            }
+        },
+        /**
+         * 64 cells per long, advanced word-parallel
+         */
+        BIT_PACKED {
+            @Override
+            Field create(int rows, int columns) {
+                return new BitField(rows, columns);
+            }
+        };
+
+        abstract Field create(int rows, int columns);
+    }
 }
@@ -0,0 +1,139 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.Arrays;
+
+/**
+ * the last generations of a {@link GameOfLife} as 128 bit field hashes, ring buffer with a hash index so a
+ * repetition is found in constant time
+ *
+ * @author Henrik Drefs
+ */
+final class HashHistory {
+
+    private final long[] hashes1;
+    private final long[] hashes2;
+    private final long[] generations;
+    private int start;
+    private int size;
+    /**
+     * open addressing index, slot of the ring buffer + 1, 0 if empty
+     */
+    private final int[] index;
+    private final int mask;
+
+    HashHistory(int capacity) {
+        capacity = Math.max(capacity, 1);
+        hashes1 = new long[capacity];
+        hashes2 = new long[capacity];
+        generations = new long[capacity];
+        int indexSize = Integer.highestOneBit(capacity) << 2;
+        index = new int[indexSize];
+        mask = indexSize - 1;
+    }
+
+    int capacity() {
+        return hashes1.length;
+    }
+
+    /**
+     * @return approximate memory used by the entries and the index
+     */
+    long bytes() {
+        return 24L * capacity() + 4L * index.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0)
+            return;
+        start = 0;
+        size = 0;
+        Arrays.fill(index, 0);
+    }
+
+    /**
+     * @return first hash of the {@code i}-th oldest entry
+     */
+    long getHash1(int i) {
+        return hashes1[(start + i) % capacity()];
+    }
+
+    long getHash2(int i) {
+        return hashes2[(start + i) % capacity()];
+    }
+
+    long getGeneration(int i) {
+        return generations[(start + i) % capacity()];
+    }
+
+    /**
+     * @return generation of the oldest entry with the given hash, -1 if there is none
+     */
+    long find(long hash1, long hash2) {
+        long found = -1;
+        for (int i = (int) hash1 & mask; index[i] != 0; i = (i + 1) & mask) {
+            int slot = index[i] - 1;
+            if (hashes1[slot] == hash1 && hashes2[slot] == hash2
+                    && (found == -1 || generations[slot] < found))
+                found = generations[slot];
+        }
+        return found;
+    }
+
+    /**
+     * adds a generation, drops the oldest one if full
+     */
+    void add(long hash1, long hash2, long generation) {
+        int slot;
+        if (size == capacity()) {
+            slot = start;
+            remove(slot);
+            start = (start + 1) % capacity();
+        } else {
+            slot = (start + size) % capacity();
+            size++;
+        }
+        hashes1[slot] = hash1;
+        hashes2[slot] = hash2;
+        generations[slot] = generation;
+        int i = (int) hash1 & mask;
+        while (index[i] != 0)
+            i = (i + 1) & mask;
+        index[i] = slot + 1;
+    }
+
+    /**
+     * removes a slot from the index, shifting back following entries of the probe sequence
+     */
+    private void remove(int slot) {
+        int i = (int) hashes1[slot] & mask;
+        while (index[i] != slot + 1)
+            i = (i + 1) & mask;
+        int gap = i;
+        for (i = (i + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int home = (int) hashes1[index[i] - 1] & mask;
+            // move the entry into the gap unless its home lies cyclically in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                index[gap] = index[i];
+                gap = i;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    /**
+     * copies the newest entries into a history of another capacity
+     */
+    HashHistory resize(int capacity) {
+        HashHistory resized = new HashHistory(capacity);
+        int skip = Math.max(0, size - resized.capacity());
+        for (int i = skip; i < size; i++) {
+            int slot = (start + i) % capacity();
+            resized.add(hashes1[slot], hashes2[slot], generations[slot]);
+        }
+        return resized;
+    }
+}
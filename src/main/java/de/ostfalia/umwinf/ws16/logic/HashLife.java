@@ -0,0 +1,482 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * unbounded HashLife engine: the plane is a quadtree of canonical nodes whose future centers are memoized, so
+ * repetitive patterns can be advanced by {@code 2^k} generations at once
+ * <p>
+ * the root is centered on the origin, a node of level {@code L} covers {@code 2^L x 2^L} cells. Nodes are kept in a
+ * hash table that is garbage collected between steps once it holds more than {@link #getMaxNodes()} nodes.
+ *
+ * @author Henrik Drefs
+ */
+public class HashLife implements LifeEngine {
+
+    /**
+     * node count that triggers a garbage collection of the node table
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 21;
+    private static final int MIN_ROOT_LEVEL = 3;
+    /**
+     * largest level of a node, half its width still fits a long
+     */
+    private static final int MAX_LEVEL = 63;
+
+    /**
+     * quadtree node, level 0 nodes are single cells
+     */
+    static final class Node {
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        final int level;
+        final long population;
+        final int hash;
+        /**
+         * chain of the node table
+         */
+        Node next;
+        /**
+         * memoized center after {@code 2^resultLog} generations
+         */
+        Node result;
+        int resultLog;
+        /**
+         * last garbage collection that kept this node
+         */
+        int mark;
+
+        private Node(boolean alive) {
+            nw = ne = sw = se = null;
+            level = 0;
+            population = alive ? 1 : 0;
+            hash = alive ? 1 : 0;
+        }
+
+        private Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+
+    private static final Node DEAD = new Node(false);
+    private static final Node ALIVE = new Node(true);
+
+    private Node[] table = new Node[1 << 16];
+    private int nodeCount = 0;
+    private int maxNodes = DEFAULT_MAX_NODES;
+    private int gcCount = 0;
+    /**
+     * canonical empty node per level
+     */
+    private Node[] empty = new Node[MAX_LEVEL + 1];
+    /**
+     * next states of the 4 center cells for each 4x4 block, indexed by the 16 cells row by row
+     */
+    private final byte[] blockResults = new byte[1 << 16];
+    private final Rule rule;
+
+    private Node root;
+    private long countAdvances = 0;
+
+    /**
+     * creates an empty plane for Conway's Game of Life
+     */
+    public HashLife() {
+        this(Rule.CONWAY);
+    }
+
+    /**
+     * creates an empty plane for the given rule
+     *
+     * @throws IllegalArgumentException if dead cells without alive neighbors are born under the rule
+     */
+    public HashLife(Rule rule) {
+        if (rule.bornWithoutNeighbors())
+            throw new IllegalArgumentException("rule invalid");
+        this.rule = rule;
+        for (int block = 0; block < blockResults.length; block++)
+            blockResults[block] = (byte) (nextState(block, 1, 1) | nextState(block, 2, 1) << 1
+                    | nextState(block, 1, 2) << 2 | nextState(block, 2, 2) << 3);
+        empty[0] = DEAD;
+        root = empty(MIN_ROOT_LEVEL);
+    }
+
+    /**
+     * @return next state of cell ({@code x}, {@code y}) in a 4x4 block
+     */
+    private int nextState(int block, int x, int y) {
+        int aliveNeighbors = 0;
+        for (int row = y - 1; row <= y + 1; row++)
+            for (int col = x - 1; col <= x + 1; col++)
+                if ((row != y || col != x) && (block >>> (row * 4 + col) & 1) != 0)
+                    aliveNeighbors++;
+        boolean alive = (block >>> (y * 4 + x) & 1) != 0;
+        return rule.next(alive, aliveNeighbors) ? 1 : 0;
+    }
+
+    /**
+     * @return the canonical node with the given children
+     */
+    Node node(Node nw, Node ne, Node sw, Node se) {
+        int hash = ((nw.hash * 0x9e3779b1 + ne.hash) * 0x85ebca6b + sw.hash) * 0xc2b2ae35 + se.hash;
+        hash ^= hash >>> 16;
+        int bucket = hash & (table.length - 1);
+        for (Node n = table[bucket]; n != null; n = n.next)
+            if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se)
+                return n;
+        Node n = new Node(nw, ne, sw, se, hash);
+        insert(n);
+        return n;
+    }
+
+    private void insert(Node n) {
+        if (nodeCount >= table.length)
+            rehash(table.length * 2);
+        int bucket = n.hash & (table.length - 1);
+        n.next = table[bucket];
+        table[bucket] = n;
+        nodeCount++;
+    }
+
+    private void rehash(int size) {
+        Node[] old = table;
+        table = new Node[size];
+        for (Node head : old) {
+            for (Node n = head; n != null; ) {
+                Node next = n.next;
+                int bucket = n.hash & (size - 1);
+                n.next = table[bucket];
+                table[bucket] = n;
+                n = next;
+            }
+        }
+    }
+
+    Node empty(int level) {
+        if (empty[level] == null) {
+            Node child = empty(level - 1);
+            empty[level] = node(child, child, child, child);
+        }
+        return empty[level];
+    }
+
+    /**
+     * @return a node one level higher with {@code n} in its center
+     * @throws IllegalStateException if {@code n} is of the largest level
+     */
+    private Node expand(Node n) {
+        if (n.level == MAX_LEVEL)
+            throw new IllegalStateException("universe too large");
+        Node e = empty(n.level - 1);
+        return node(node(e, e, e, n.nw), node(e, e, n.ne, e), node(e, n.sw, e, e), node(n.se, e, e, e));
+    }
+
+    /**
+     * @return the center of {@code n}, one level lower
+     */
+    private Node center(Node n) {
+        return node(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    private Node centerHorizontal(Node w, Node e) {
+        return node(w.ne, e.nw, w.se, e.sw);
+    }
+
+    private Node centerVertical(Node n, Node s) {
+        return node(n.sw, n.se, s.nw, s.ne);
+    }
+
+    /**
+     * @param n     node of level 2 or higher
+     * @param log   {@code 0 <= log <= n.level - 2}
+     * @return the center of {@code n} after {@code 2^log} generations
+     */
+    Node step(Node n, int log) {
+        if (n.population == 0)
+            return empty(n.level - 1);
+        if (n.result != null && n.resultLog == log)
+            return n.result;
+        Node result;
+        if (n.level == 2) {
+            result = stepBlock(n);
+        } else {
+            Node n00 = n.nw, n01 = centerHorizontal(n.nw, n.ne), n02 = n.ne;
+            Node n10 = centerVertical(n.nw, n.sw), n11 = center(n), n12 = centerVertical(n.ne, n.se);
+            Node n20 = n.sw, n21 = centerHorizontal(n.sw, n.se), n22 = n.se;
+            if (log == n.level - 2) {
+                // two half steps
+                int half = log - 1;
+                n00 = step(n00, half);
+                n01 = step(n01, half);
+                n02 = step(n02, half);
+                n10 = step(n10, half);
+                n11 = step(n11, half);
+                n12 = step(n12, half);
+                n20 = step(n20, half);
+                n21 = step(n21, half);
+                n22 = step(n22, half);
+                result = node(step(node(n00, n01, n10, n11), half), step(node(n01, n02, n11, n12), half),
+                        step(node(n10, n11, n20, n21), half), step(node(n11, n12, n21, n22), half));
+            } else {
+                // shrink without advancing, then a full step of the smaller nodes
+                n00 = center(n00);
+                n01 = center(n01);
+                n02 = center(n02);
+                n10 = center(n10);
+                n11 = center(n11);
+                n12 = center(n12);
+                n20 = center(n20);
+                n21 = center(n21);
+                n22 = center(n22);
+                result = node(step(node(n00, n01, n10, n11), log), step(node(n01, n02, n11, n12), log),
+                        step(node(n10, n11, n20, n21), log), step(node(n11, n12, n21, n22), log));
+            }
+        }
+        n.result = result;
+        n.resultLog = log;
+        return result;
+    }
+
+    /**
+     * @param n level 2 node
+     * @return its center after one generation
+     */
+    private Node stepBlock(Node n) {
+        int block = 0;
+        for (int y = 0; y < 4; y++)
+            for (int x = 0; x < 4; x++)
+                if (cell(n, x - 2, y - 2) == ALIVE)
+                    block |= 1 << (y * 4 + x);
+        int next = blockResults[block];
+        return node(cell(next & 1), cell(next & 2), cell(next & 4), cell(next & 8));
+    }
+
+    private static Node cell(int alive) {
+        return alive != 0 ? ALIVE : DEAD;
+    }
+
+    /**
+     * @return the level 0 node at the given coordinates relative to the center of {@code n}
+     */
+    private static Node cell(Node n, long x, long y) {
+        while (n.level > 0) {
+            long half = n.level == 1 ? 0 : 1L << (n.level - 2);
+            boolean west = x < 0;
+            boolean north = y < 0;
+            if (n.level > 1) {
+                x += west ? half : -half;
+                y += north ? half : -half;
+            }
+            n = north ? (west ? n.nw : n.ne) : (west ? n.sw : n.se);
+        }
+        return n;
+    }
+
+    private Node set(Node n, long x, long y, boolean state) {
+        if (n.level == 0)
+            return state ? ALIVE : DEAD;
+        long half = n.level == 1 ? 0 : 1L << (n.level - 2);
+        boolean west = x < 0;
+        boolean north = y < 0;
+        if (n.level > 1) {
+            x += west ? half : -half;
+            y += north ? half : -half;
+        }
+        if (north && west)
+            return node(set(n.nw, x, y, state), n.ne, n.sw, n.se);
+        if (north)
+            return node(n.nw, set(n.ne, x, y, state), n.sw, n.se);
+        if (west)
+            return node(n.nw, n.ne, set(n.sw, x, y, state), n.se);
+        return node(n.nw, n.ne, n.sw, set(n.se, x, y, state));
+    }
+
+    private static boolean contains(Node n, long x, long y) {
+        long half = 1L << (n.level - 1);
+        return x >= -half && x < half && y >= -half && y < half;
+    }
+
+    @Override
+    public void setCell(boolean state, int x, int y) {
+        while (!contains(root, x, y))
+            root = expand(root);
+        root = set(root, x, y, state);
+        countAdvances = 0;
+    }
+
+    @Override
+    public boolean getCell(int x, int y) {
+        return contains(root, x, y) && cell(root, x, y) == ALIVE;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void advance() {
+        advance(1);
+    }
+
+    /**
+     * advances in steps of powers of two, so that {@code generations} is reached in {@code log(generations)}
+     * steps
+     *
+     * @throws IllegalStateException if the pattern grows farther than about {@code 2^61} cells from the origin, the
+     *                               generations advanced until then are kept
+     */
+    @Override
+    public void advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations invalid");
+        for (int log = 0; generations >>> log != 0; log++) {
+            if ((generations >>> log & 1) == 0)
+                continue;
+            stepRoot(log);
+            countAdvances += 1L << log;
+            if (nodeCount > maxNodes)
+                collectGarbage();
+        }
+    }
+
+    /**
+     * advances the root by {@code 2^log} generations
+     */
+    private void stepRoot(int log) {
+        if (log > MAX_LEVEL - 3) {
+            // the root of a step this large would exceed the largest level, two half steps do not
+            stepRoot(log - 1);
+            stepRoot(log - 1);
+            return;
+        }
+        while (root.level < log + 2 || center(root).population != root.population)
+            root = expand(root);
+        // the pattern can grow by 2^log cells to each side, the result of a level L node covers half of it
+        root = step(expand(root), log);
+        if (root.level < MIN_ROOT_LEVEL)
+            root = expand(root);
+    }
+
+    /**
+     * rebuilds the node table from the nodes reachable by the root, drops all memoized results
+     */
+    public void collectGarbage() {
+        gcCount++;
+        table = new Node[Math.max(1 << 16, Integer.highestOneBit(Math.max(nodeCount, 1)))];
+        nodeCount = 0;
+        for (Node e : empty)
+            if (e != null)
+                keep(e);
+        keep(root);
+    }
+
+    private void keep(Node n) {
+        if (n.level == 0 || n.mark == gcCount)
+            return;
+        n.mark = gcCount;
+        keep(n.nw);
+        keep(n.ne);
+        keep(n.sw);
+        keep(n.se);
+        n.result = null;
+        insert(n);
+    }
+
+    @Override
+    public long countAdvances() {
+        return countAdvances;
+    }
+
+    @Override
+    public long countAlive() {
+        return root.population;
+    }
+
+    @Override
+    public boolean allDead() {
+        return root.population == 0;
+    }
+
+    @Override
+    public CellBounds getBounds() {
+        if (root.population == 0)
+            return null;
+        long corner = -(1L << (root.level - 1));
+        return new CellBounds(Math.toIntExact(corner + edge(root, false, false)),
+                Math.toIntExact(corner + edge(root, true, false)), Math.toIntExact(corner + edge(root, false, true)),
+                Math.toIntExact(corner + edge(root, true, true)));
+    }
+
+    /**
+     * @param n        node with alive cells
+     * @param vertical whether to look for y instead of x
+     * @param max      whether to look for the largest instead of the smallest coordinate
+     * @return the smallest or largest coordinate of an alive cell relative to the corner of {@code n}
+     */
+    private static long edge(Node n, boolean vertical, boolean max) {
+        if (n.level == 0)
+            return 0;
+        long half = 1L << (n.level - 1);
+        Node low1 = n.nw, low2 = vertical ? n.ne : n.sw;
+        Node high1 = vertical ? n.sw : n.ne, high2 = n.se;
+        boolean highFirst = max ? high1.population + high2.population > 0 : low1.population + low2.population == 0;
+        Node first = highFirst ? high1 : low1;
+        Node second = highFirst ? high2 : low2;
+        long offset = highFirst ? half : 0;
+        if (first.population == 0)
+            return offset + edge(second, vertical, max);
+        if (second.population == 0)
+            return offset + edge(first, vertical, max);
+        long a = edge(first, vertical, max);
+        long b = edge(second, vertical, max);
+        return offset + (max ? Math.max(a, b) : Math.min(a, b));
+    }
+
+    @Override
+    public void forEachAlive(CellVisitor visitor) {
+        long half = 1L << (root.level - 1);
+        forEachAlive(root, -half, -half, visitor);
+    }
+
+    private static void forEachAlive(Node n, long x, long y, CellVisitor visitor) {
+        if (n.population == 0)
+            return;
+        if (n.level == 0) {
+            visitor.visit(Math.toIntExact(x), Math.toIntExact(y));
+            return;
+        }
+        long half = 1L << (n.level - 1);
+        forEachAlive(n.nw, x, y, visitor);
+        forEachAlive(n.ne, x + half, y, visitor);
+        forEachAlive(n.sw, x, y + half, visitor);
+        forEachAlive(n.se, x + half, y + half, visitor);
+    }
+
+    /**
+     * @return number of nodes in the node table
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * @param maxNodes node count above which unreachable nodes and memoized results are dropped after a step
+     * @throws IllegalArgumentException if {@code maxNodes} is not positive
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes <= 0)
+            throw new IllegalArgumentException("maxNodes invalid");
+        this.maxNodes = maxNodes;
+    }
+}
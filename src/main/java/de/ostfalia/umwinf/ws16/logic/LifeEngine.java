@@ -0,0 +1,74 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * common interface of the Game of Life implementations
+ *
+ * @author Henrik Drefs
+ */
+public interface LifeEngine {
+
+    /**
+     * sets a cell to a given state and resets analysis
+     *
+     * @param state new state
+     * @param x     x-coordinate of cell to change
+     * @param y     y-coordinate of cell to change
+     */
+    void setCell(boolean state, int x, int y);
+
+    boolean getCell(int x, int y);
+
+    /**
+     * @return the rule that computes the next generation
+     */
+    Rule getRule();
+
+    /**
+     * advances the field by 1 generation
+     */
+    void advance();
+
+    /**
+     * advances the field by the given number of generations, engines may skip intermediate generations
+     *
+     * @param generations number of generations, not negative
+     * @throws IllegalArgumentException if {@code generations} is negative
+     */
+    default void advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("generations invalid");
+        for (long i = 0; i < generations; i++)
+            advance();
+    }
+
+    /**
+     * @return number of generations since the last edit
+     */
+    long countAdvances();
+
+    long countAlive();
+
+    boolean allDead();
+
+    /**
+     * @return the area that contains all alive cells, for bounded engines the whole field, {@code null} if an
+     * unbounded engine has no alive cells
+     * @throws ArithmeticException if an unbounded engine has alive cells beyond the range of {@code int}
+     */
+    CellBounds getBounds();
+
+    /**
+     * calls the visitor for every alive cell
+     *
+     * @throws ArithmeticException if an unbounded engine reaches an alive cell beyond the range of {@code int}
+     */
+    void forEachAlive(CellVisitor visitor);
+
+    /**
+     * callback for {@link #forEachAlive(CellVisitor)}
+     */
+    @FunctionalInterface
+    interface CellVisitor {
+        void visit(int x, int y);
+    }
+}
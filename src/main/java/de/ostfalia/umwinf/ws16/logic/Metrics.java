@@ -0,0 +1,213 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * counters of a simulation, filled by {@link GameOfLife#advance()} once set by
+ * {@link GameOfLife#setMetrics(Metrics)} and by the renderer, readable by any thread and over JMX
+ * <p>
+ * every counter is only written by the thread advancing the game or by the renderer, so updating needs neither a
+ * lock nor an atomic operation and the counters can stay enabled. Readers may see the counters of different
+ * generations.
+ *
+ * @author Henrik Drefs
+ */
+public final class Metrics implements MetricsMXBean {
+
+    private static final long RATE_WINDOW = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long RATE_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile long generations;
+    private volatile long computeNanos;
+    private volatile long cycleDetectionNanos;
+    private volatile long notificationNanos;
+    private volatile long renderNanos;
+    private volatile long renderedFrames;
+    private volatile long droppedFrames;
+    private volatile long liveCells;
+    private volatile long births;
+    private volatile long deaths;
+    private volatile long totalBirths;
+    private volatile long totalDeaths;
+    private volatile long historyBytes;
+    private volatile double rate;
+    /**
+     * start of the window of the rate and the generations at that time
+     */
+    private volatile long windowStart = System.nanoTime();
+    private long windowGenerations;
+    /**
+     * copied on every change, so notifying needs neither a lock nor an iterator
+     */
+    private volatile Listener[] listeners = new Listener[0];
+    private ObjectName name;
+
+    /**
+     * gets notified after every generation counted
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * called by the thread advancing the game
+         */
+        void advanced(Metrics metrics);
+    }
+
+    public synchronized void addListener(Listener listener) {
+        Listener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.listeners = listeners;
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        Listener[] listeners = this.listeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                Listener[] removed = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                this.listeners = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * registers the metrics at the platform MBean server as {@code de.ostfalia.umwinf.ws16:type=Metrics,name=<name>}
+     *
+     * @throws JMException if the name is invalid or taken
+     */
+    public synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("de.ostfalia.umwinf.ws16:type=Metrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+    }
+
+    /**
+     * removes the metrics from the platform MBean server, does nothing if not registered
+     *
+     * @throws JMException if unregistering fails
+     */
+    public synchronized void unregister() throws JMException {
+        if (name == null)
+            return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        name = null;
+    }
+
+    /**
+     * counts a generation, called by the thread advancing the game
+     *
+     * @param now {@link System#nanoTime()} at the end of the generation
+     */
+    void advanced(long births, long deaths, long liveCells, long computeNanos, long cycleDetectionNanos,
+                  long notificationNanos, long historyBytes, long now) {
+        this.computeNanos += computeNanos;
+        this.cycleDetectionNanos += cycleDetectionNanos;
+        this.notificationNanos += notificationNanos;
+        this.births = births;
+        this.deaths = deaths;
+        totalBirths += births;
+        totalDeaths += deaths;
+        this.liveCells = liveCells;
+        this.historyBytes = historyBytes;
+        long generations = ++this.generations;
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW) {
+            rate = (generations - windowGenerations) * 1e9 / elapsed;
+            windowStart = now;
+            windowGenerations = generations;
+        }
+        for (Listener listener : listeners)
+            listener.advanced(this);
+    }
+
+    /**
+     * counts a rendered frame, called by the renderer
+     */
+    public void rendered(long nanos) {
+        renderNanos += nanos;
+        renderedFrames++;
+    }
+
+    /**
+     * counts a generation that was not handed to the renderer, called by the thread advancing the game
+     */
+    public void dropped() {
+        droppedFrames++;
+    }
+
+    @Override
+    public long getGenerations() {
+        return generations;
+    }
+
+    @Override
+    public double getGenerationsPerSecond() {
+        return System.nanoTime() - windowStart > RATE_TIMEOUT ? 0 : rate;
+    }
+
+    @Override
+    public long getComputeNanos() {
+        return computeNanos;
+    }
+
+    @Override
+    public long getCycleDetectionNanos() {
+        return cycleDetectionNanos;
+    }
+
+    @Override
+    public long getNotificationNanos() {
+        return notificationNanos;
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    @Override
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public long getLiveCells() {
+        return liveCells;
+    }
+
+    @Override
+    public long getBirths() {
+        return births;
+    }
+
+    @Override
+    public long getDeaths() {
+        return deaths;
+    }
+
+    @Override
+    public long getTotalBirths() {
+        return totalBirths;
+    }
+
+    @Override
+    public long getTotalDeaths() {
+        return totalDeaths;
+    }
+
+    @Override
+    public long getHistoryBytes() {
+        return historyBytes;
+    }
+}
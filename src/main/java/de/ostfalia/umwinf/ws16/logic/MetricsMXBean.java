@@ -0,0 +1,55 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * management interface of {@link Metrics}, all times in nanoseconds summed up since the metrics were created
+ *
+ * @author Henrik Drefs
+ */
+public interface MetricsMXBean {
+
+    long getGenerations();
+
+    /**
+     * @return generations per second over the last quarter second, 0 if none was advanced for a second
+     */
+    double getGenerationsPerSecond();
+
+    long getComputeNanos();
+
+    long getCycleDetectionNanos();
+
+    /**
+     * @return time spent in {@link FieldListener}s
+     */
+    long getNotificationNanos();
+
+    long getRenderNanos();
+
+    long getRenderedFrames();
+
+    /**
+     * @return generations that were advanced but never rendered
+     */
+    long getDroppedFrames();
+
+    long getLiveCells();
+
+    /**
+     * @return cells born in the last generation
+     */
+    long getBirths();
+
+    /**
+     * @return cells died in the last generation
+     */
+    long getDeaths();
+
+    long getTotalBirths();
+
+    long getTotalDeaths();
+
+    /**
+     * @return memory used by the history of field hashes for cycle detection
+     */
+    long getHistoryBytes();
+}
@@ -0,0 +1,538 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * records the generations of games to a file, so every recorded frame can be restored later
+ * <p>
+ * a frame is stored as deflated keyframe with all cells whenever it does not follow the previous frame by a single
+ * advance, e.g. after an edit or for another game. Other frames are stored as the words of 64 cells that flipped
+ * since the previous frame. Only the non-zero bytes of these words are
+ * stored, which is much cheaper than deflating them and about as small, as flipped cells are sparse.
+ * <p>
+ * a new keyframe is written after {@code keyframeInterval} frames once the deltas since the last one are as large as
+ * the cells, and after {@link #MAX_INTERVAL_FACTOR} times that many frames at the latest, so fields with few changes
+ * are not deflated over and over. Seeking replays the deltas from the nearest keyframe, which costs about as much as
+ * inflating it.
+ * <p>
+ * the thread advancing the game only copies the rows of the tiles the step changed into chunks of about
+ * {@link #CHUNK_WORDS} words and takes a {@link Snapshot} for every keyframe. A background thread compares the rows
+ * with its copy of the previous frame, encodes the deltas, deflates the keyframes and appends both. The recording
+ * thread only waits if the background thread falls behind by {@link #QUEUE_CAPACITY} chunks or keyframes.
+ * {@link #record(GameOfLife)}, {@link #seek(int)} and {@link #rewind(int)} must not be called concurrently.
+ *
+ * @author Henrik Drefs
+ */
+public class Recorder implements Closeable {
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+    private static final int CHUNK_WORDS = 1 << 16;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final int MAX_INTERVAL_FACTOR = 64;
+    private static final byte KEYFRAME = 1;
+    private static final byte DELTA = 2;
+    /**
+     * type, raw length and stored length of a frame
+     */
+    private static final int FRAME_HEADER = 9;
+    /**
+     * maximum size of an encoded word: index gap, mask and 8 bytes
+     */
+    private static final int MAX_WORD_SIZE = 19;
+
+    private final FileChannel channel;
+    private final int keyframeInterval;
+    private final ThreadPoolExecutor writer;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private volatile int frames;
+    /**
+     * first failed write, {@code null} if all succeeded
+     */
+    private volatile IOException failure;
+
+    // state of the recording thread
+    /**
+     * game of the last frame, {@code null} if the next frame is a keyframe
+     */
+    private GameOfLife last;
+    private long lastGeneration;
+    private long lastHash1;
+    private long lastHash2;
+    private int sinceKeyframe;
+    /**
+     * chunk the changed rows are copied into, {@code null} if none was started since the last hand-off
+     */
+    private Chunk chunk;
+    /**
+     * field whose rows are copied
+     */
+    private Field copied;
+    private final Field.RowsVisitor copier = this::copy;
+    /**
+     * chunks returned by the writer, so recording does not allocate in steady state
+     */
+    private final ArrayBlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+    /**
+     * bytes of the deltas since the last keyframe, written by the writer and read by the recording thread, which may
+     * see it late and then only writes the next keyframe later
+     */
+    private volatile long deltaBytes;
+
+    // state of the writer thread, visible to the others after flush()
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private boolean[] keyframes = new boolean[1024];
+    private long end;
+    /**
+     * cells of the last written frame in the layout of {@link Field#writeRows(LongBuffer, int, int)}
+     */
+    private long[] cells = new long[0];
+    private int rowWords;
+    /**
+     * deltas of a chunk being encoded
+     */
+    private byte[] encoded = new byte[1 << 16];
+    private int encodedLength;
+    /**
+     * index of the last word encoded into the current delta
+     */
+    private long lastIndex;
+
+    /**
+     * @param file             file of the recording, overwritten if it exists
+     * @param keyframeInterval minimum number of frames from one keyframe to the next
+     * @throws IOException              if the file can't be created
+     * @throws IllegalArgumentException if {@code keyframeInterval} is less than 1
+     */
+    public Recorder(Path file, int keyframeInterval) throws IOException {
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("interval invalid");
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recorder");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> {
+            // wait for the writer instead of dropping frames
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * records the current generation of a game as next frame, to be called by the thread changing the game after
+     * every advance or edit
+     */
+    public void record(GameOfLife gol) {
+        Field field = gol.getCurrentField();
+        Field previous = gol.getPreviousField();
+        int frame = frames;
+        boolean follows = gol == last && gol.countAdvances() == lastGeneration + 1 && previous != null
+                && previous.hash1 == lastHash1 && previous.hash2 == lastHash2;
+        long cellBytes = (long) field.rows * ((field.columns + 63) >>> 6) << 3;
+        boolean keyframeDue = sinceKeyframe >= keyframeInterval && (deltaBytes >= cellBytes
+                || sinceKeyframe >= (long) keyframeInterval * MAX_INTERVAL_FACTOR);
+        if (follows && !keyframeDue) {
+            if (chunk == null)
+                chunk = takeChunk(frame);
+            copied = field;
+            field.forEachChangedRows(copier);
+            copied = null;
+            chunk.frameEnded();
+            if (chunk.position >= CHUNK_WORDS)
+                handOff();
+            sinceKeyframe++;
+        } else {
+            handOff();
+            Snapshot snapshot = gol.snapshot();
+            writer.execute(() -> writeKeyframe(frame, snapshot));
+            sinceKeyframe = 1;
+        }
+        last = gol;
+        lastGeneration = gol.countAdvances();
+        lastHash1 = field.hash1;
+        lastHash2 = field.hash2;
+        frames = frame + 1;
+    }
+
+    /**
+     * copies a run of rows into the chunk after its first and last row
+     */
+    private void copy(int from, int to) {
+        int words = (copied.columns + 63) >>> 6;
+        chunk.ensure(2 + (to - from) * words);
+        long[] data = chunk.data;
+        data[chunk.position++] = from;
+        data[chunk.position++] = to;
+        chunk.buffer.clear().position(chunk.position);
+        copied.writeRows(chunk.buffer, from, to);
+        chunk.position = chunk.buffer.position();
+    }
+
+    /**
+     * encodes a word as gap to the previous index, a mask of the non-zero bytes and these bytes, runs on the writer
+     * thread
+     */
+    private void encode(long index, long xor) {
+        if (encoded.length - encodedLength < MAX_WORD_SIZE)
+            encoded = Arrays.copyOf(encoded, encoded.length * 2);
+        byte[] data = encoded;
+        int position = encodedLength;
+        long gap = index - lastIndex - 1;
+        for (; (gap & ~0x7fL) != 0; gap >>>= 7)
+            data[position++] = (byte) (gap & 0x7f | 0x80);
+        data[position++] = (byte) gap;
+        lastIndex = index;
+        // gathers a bit per non-zero byte
+        long nonZero = xor | xor >>> 4;
+        nonZero |= nonZero >>> 2;
+        nonZero |= nonZero >>> 1;
+        int mask = (int) ((nonZero & 0x0101010101010101L) * 0x0102040810204080L >>> 56);
+        data[position++] = (byte) mask;
+        // every byte is written, only the non-zero ones are kept, which avoids a branch per byte
+        for (int i = 0; i < 8; i++) {
+            data[position] = (byte) (xor >>> (i << 3));
+            position += mask >>> i & 1;
+        }
+        encodedLength = position;
+    }
+
+    private Chunk takeChunk(int firstFrame) {
+        Chunk chunk = freeChunks.poll();
+        if (chunk == null)
+            chunk = new Chunk();
+        chunk.firstFrame = firstFrame;
+        return chunk;
+    }
+
+    /**
+     * passes the current chunk to the writer
+     */
+    private void handOff() {
+        if (chunk == null)
+            return;
+        Chunk full = chunk;
+        chunk = null;
+        writer.execute(() -> writeChunk(full));
+    }
+
+    /**
+     * encodes the rows of a chunk as deltas to the previous frames and appends them, runs on the writer thread
+     */
+    private void writeChunk(Chunk chunk) {
+        try {
+            if (failure == null) {
+                long offset = end;
+                encodedLength = 0;
+                int position = 0;
+                for (int i = 0; i < chunk.count; i++) {
+                    int start = encodedLength;
+                    encodedLength += FRAME_HEADER;
+                    lastIndex = -1;
+                    position = encodeFrame(chunk.data, position, chunk.ends[i]);
+                    int length = encodedLength - start - FRAME_HEADER;
+                    encoded[start] = DELTA;
+                    for (int b = 0; b < 4; b++) {
+                        encoded[start + 1 + b] = (byte) (length >>> (b << 3));
+                        encoded[start + 5 + b] = (byte) (length >>> (b << 3));
+                    }
+                    index(chunk.firstFrame + i, offset + start, FRAME_HEADER + length, false);
+                }
+                ByteBuffer data = ByteBuffer.wrap(encoded, 0, encodedLength);
+                while (data.hasRemaining())
+                    end += channel.write(data, end);
+                deltaBytes += encodedLength;
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        chunk.position = 0;
+        chunk.count = 0;
+        freeChunks.offer(chunk);
+    }
+
+    /**
+     * encodes the words of the copied rows that differ from the previous frame and keeps them as previous frame
+     *
+     * @param position first word of the frame in {@code data}
+     * @param end      word after the frame
+     * @return {@code end}
+     */
+    private int encodeFrame(long[] data, int position, int end) {
+        long[] cells = this.cells;
+        while (position < end) {
+            int from = (int) data[position];
+            int to = (int) data[position + 1];
+            position += 2;
+            int index = from * rowWords;
+            for (int last = to * rowWords; index < last; index++) {
+                long word = data[position++];
+                long xor = word ^ cells[index];
+                if (xor != 0) {
+                    cells[index] = word;
+                    encode(index, xor);
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * deflates and appends a keyframe of a snapshot, runs on the writer thread
+     */
+    private void writeKeyframe(int frame, Snapshot snapshot) {
+        if (failure != null)
+            return;
+        Field field = snapshot.getField();
+        byte[] rule = field.rule.toString().getBytes(StandardCharsets.US_ASCII);
+        int words = (field.columns + 63) >>> 6;
+        ByteBuffer raw = ByteBuffer.allocate(32 + rule.length + field.rows * words * 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        raw.putInt(field.columns).putInt(field.rows).putInt(field.topology.ordinal()).putLong(snapshot.countAdvances())
+                .putInt(rule.length).put(rule);
+        // cells start aligned
+        raw.position((raw.position() + 7) & ~7);
+        field.writeRows(raw.asLongBuffer(), 0, field.rows);
+        // the following deltas are taken against these cells
+        rowWords = words;
+        if (cells.length != field.rows * words)
+            cells = new long[field.rows * words];
+        field.writeRows(LongBuffer.wrap(cells), 0, field.rows);
+        deltaBytes = 0;
+        deflater.reset();
+        deflater.setInput(raw.array());
+        deflater.finish();
+        byte[] stored = new byte[raw.capacity() / 2 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == stored.length)
+                stored = Arrays.copyOf(stored, stored.length * 2);
+            length += deflater.deflate(stored, length, stored.length - length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER + length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(KEYFRAME).putInt(raw.capacity()).putInt(length).put(stored, 0, length).flip();
+        try {
+            long offset = end;
+            while (buffer.hasRemaining())
+                end += channel.write(buffer, end);
+            index(frame, offset, buffer.limit(), true);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void index(int frame, long offset, int length, boolean keyframe) {
+        if (frame >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            keyframes = Arrays.copyOf(keyframes, keyframes.length * 2);
+        }
+        offsets[frame] = offset;
+        lengths[frame] = length;
+        keyframes[frame] = keyframe;
+    }
+
+    /**
+     * @return number of recorded frames
+     */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * restores a recorded frame into a new game, the analysis of the game starts over
+     *
+     * @throws IOException               if reading fails or a frame could not be written
+     * @throws IndexOutOfBoundsException if the frame was not recorded
+     */
+    public GameOfLife seek(int frame) throws IOException {
+        if (frame < 0 || frame >= frames)
+            throw new IndexOutOfBoundsException("frame " + frame);
+        flush();
+        int keyframe = frame;
+        while (!keyframes[keyframe])
+            keyframe--;
+        ByteBuffer raw = read(keyframe);
+        int columns = raw.getInt();
+        int rows = raw.getInt();
+        int topology = raw.getInt();
+        long generation = raw.getLong();
+        byte[] rule = new byte[raw.getInt()];
+        raw.get(rule);
+        raw.position((raw.position() + 7) & ~7);
+        GameOfLife gol = new GameOfLife(rows, columns);
+        gol.setTopology(Topology.values()[topology]);
+        gol.setRule(Rule.parse(new String(rule, StandardCharsets.US_ASCII)));
+        Field field = gol.getCurrentField();
+        field.readRows(raw.asLongBuffer(), 0, rows);
+        field.rehash();
+        // the deltas after a keyframe are stored consecutively
+        ByteBuffer deltas = keyframe == frame ? ByteBuffer.allocate(0)
+                : read(offsets[keyframe + 1], (int) (offsets[frame] + lengths[frame] - offsets[keyframe + 1]));
+        while (deltas.hasRemaining()) {
+            deltas.position(deltas.position() + 5);
+            int length = deltas.getInt();
+            ByteBuffer delta = deltas.slice();
+            delta.limit(length);
+            deltas.position(deltas.position() + length);
+            long index = -1;
+            while (delta.hasRemaining()) {
+                long gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = delta.get();
+                    gap |= (long) (b & 0x7f) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                index += gap + 1;
+                long xor = 0;
+                for (int mask = delta.get() & 0xff; mask != 0; mask &= mask - 1)
+                    xor |= (delta.get() & 0xffL) << (Integer.numberOfTrailingZeros(mask) << 3);
+                field.flipWord(index, xor);
+            }
+        }
+        gol.restore(generation + frame - keyframe, false, -1, new HashHistory(gol.getKeepTrack()));
+        return gol;
+    }
+
+    /**
+     * @return the inflated content of a keyframe
+     */
+    private ByteBuffer read(int frame) throws IOException {
+        ByteBuffer buffer = read(offsets[frame], lengths[frame]);
+        buffer.get();
+        byte[] raw = new byte[buffer.getInt()];
+        int length = buffer.getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.array(), FRAME_HEADER, length);
+            if (inflater.inflate(raw) != raw.length)
+                throw new IOException("frame " + frame + " invalid");
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return {@code length} bytes at {@code position} of the file
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) == -1)
+                throw new IOException("recording truncated");
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * drops the frames after {@code frame}, the next recorded frame follows it as keyframe
+     *
+     * @throws IOException if the recording can't be truncated or a frame could not be written
+     */
+    public void rewind(int frame) throws IOException {
+        if (frame < 0 || frame >= frames)
+            throw new IndexOutOfBoundsException("frame " + frame);
+        flush();
+        end = offsets[frame] + lengths[frame];
+        channel.truncate(end);
+        frames = frame + 1;
+        last = null;
+    }
+
+    /**
+     * waits until all recorded frames are written
+     *
+     * @throws IOException if a frame could not be written
+     */
+    public void flush() throws IOException {
+        handOff();
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * writes the pending frames and closes the file
+     *
+     * @throws IOException if a frame could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        handOff();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deflater.end();
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * changed rows of consecutive frames, handed from the recording thread to the writer. Every run of rows is
+     * stored as its first row, the row after it and its words.
+     */
+    private static final class Chunk {
+        long[] data = new long[CHUNK_WORDS + (CHUNK_WORDS >> 2)];
+        /**
+         * view of {@code data} the rows are written through
+         */
+        LongBuffer buffer = LongBuffer.wrap(data);
+        int position;
+        int firstFrame;
+        int count;
+        /**
+         * position after every frame
+         */
+        int[] ends = new int[256];
+
+        void ensure(int words) {
+            if (data.length - position < words) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, position + words));
+                buffer = LongBuffer.wrap(data);
+            }
+        }
+
+        void frameEnded() {
+            if (count == ends.length)
+                ends = Arrays.copyOf(ends, count * 2);
+            ends[count++] = position;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.Locale;
+
+/**
+ * outer-totalistic rule of a Life-like cellular automaton in B/S notation, e.g. {@code B3/S23} for Conway's Game of
+ * Life: a dead cell is born with 3 alive neighbors, an alive cell survives with 2 or 3
+ * <p>
+ * rules are immutable and compiled once into masks of neighbor counts, which the engines evaluate as lookup tables
+ * or bitwise on 64 cells at once
+ *
+ * @author Henrik Drefs
+ */
+public final class Rule {
+
+    public static final Rule CONWAY = parse("B3/S23");
+    public static final Rule HIGH_LIFE = parse("B36/S23");
+    public static final Rule DAY_AND_NIGHT = parse("B3678/S34678");
+    public static final Rule SEEDS = parse("B2/S");
+
+    /**
+     * bit n is set if a dead cell with n alive neighbors is born
+     */
+    private final int birth;
+    /**
+     * bit n is set if an alive cell with n alive neighbors survives
+     */
+    private final int survival;
+    private final boolean conway;
+    /**
+     * all bits set at index n if a dead cell with n alive neighbors is born
+     */
+    private final long[] birthMasks = new long[9];
+    /**
+     * all bits set at index n if born and survival differ for n alive neighbors
+     */
+    private final long[] flipMasks = new long[9];
+
+    private Rule(int birth, int survival) {
+        this.birth = birth;
+        this.survival = survival;
+        conway = birth == 1 << 3 && survival == (1 << 2 | 1 << 3);
+        for (int count = 0; count <= 8; count++) {
+            birthMasks[count] = -(birth >>> count & 1);
+            flipMasks[count] = -((birth ^ survival) >>> count & 1);
+        }
+    }
+
+    /**
+     * parses a rule in B/S notation like {@code B36/S23}, the letters may be lower case and the slash may be
+     * omitted, the S/B notation {@code 23/36} is accepted as well
+     *
+     * @throws IllegalArgumentException if the rule is invalid
+     */
+    public static Rule parse(String rule) {
+        String notation = rule.trim().toUpperCase(Locale.ROOT);
+        String births;
+        String survivals;
+        if (notation.startsWith("B")) {
+            int s = notation.indexOf('S');
+            if (s == -1)
+                throw new IllegalArgumentException("rule invalid");
+            births = notation.substring(1, s);
+            if (births.endsWith("/"))
+                births = births.substring(0, births.length() - 1);
+            survivals = notation.substring(s + 1);
+        } else {
+            int slash = notation.indexOf('/');
+            if (slash == -1)
+                throw new IllegalArgumentException("rule invalid");
+            survivals = notation.substring(0, slash);
+            births = notation.substring(slash + 1);
+        }
+        return new Rule(counts(births), counts(survivals));
+    }
+
+    /**
+     * @return mask of the neighbor counts listed as digits
+     */
+    private static int counts(String digits) {
+        int mask = 0;
+        for (char digit : digits.toCharArray()) {
+            if (digit < '0' || digit > '8' || (mask & 1 << digit - '0') != 0)
+                throw new IllegalArgumentException("rule invalid");
+            mask |= 1 << digit - '0';
+        }
+        return mask;
+    }
+
+    /**
+     * @param alive          current state of a cell
+     * @param aliveNeighbors number of alive cells among the 8 neighbors
+     * @return next state of the cell
+     */
+    public boolean next(boolean alive, int aliveNeighbors) {
+        return ((alive ? survival : birth) >>> aliveNeighbors & 1) != 0;
+    }
+
+    /**
+     * computes the next state of 64 cells from the bit planes of their neighbor counts, {@code fours} and
+     * {@code foursCarry} both count 4, so a count of 8 has both set
+     */
+    long next(long alive, long ones, long twos, long fours, long foursCarry) {
+        if (conway)
+            // alive with 2 or 3 neighbors, born with 3
+            return twos & ~(fours | foursCarry) & (ones | alive);
+        return nextByCount(alive, ones, twos, fours ^ foursCarry, fours & foursCarry);
+    }
+
+    /**
+     * selects the next state for each of the 9 neighbor counts by the bits of the count
+     */
+    private long nextByCount(long alive, long ones, long twos, long four, long eight) {
+        // next state for every count, born for dead and survival for alive cells
+        long[] b = birthMasks, x = flipMasks;
+        long s0 = b[0] ^ x[0] & alive, s1 = b[1] ^ x[1] & alive, s2 = b[2] ^ x[2] & alive, s3 = b[3] ^ x[3] & alive;
+        long s4 = b[4] ^ x[4] & alive, s5 = b[5] ^ x[5] & alive, s6 = b[6] ^ x[6] & alive, s7 = b[7] ^ x[7] & alive;
+        long s8 = b[8] ^ x[8] & alive;
+        // select by the ones, then the twos, then the fours
+        long m01 = s0 ^ (s0 ^ s1) & ones, m23 = s2 ^ (s2 ^ s3) & ones;
+        long m45 = s4 ^ (s4 ^ s5) & ones, m67 = s6 ^ (s6 ^ s7) & ones;
+        long m03 = m01 ^ (m01 ^ m23) & twos, m47 = m45 ^ (m45 ^ m67) & twos;
+        return (m03 ^ (m03 ^ m47) & four) & ~eight | s8 & eight;
+    }
+
+    /**
+     * @return if dead cells without alive neighbors are born, such rules fill the infinite plane and are not
+     * supported by unbounded engines
+     */
+    public boolean bornWithoutNeighbors() {
+        return (birth & 1) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule))
+            return false;
+        Rule other = (Rule) o;
+        return birth == other.birth && survival == other.survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return birth << 9 | survival;
+    }
+
+    /**
+     * @return the rule in B/S notation
+     */
+    @Override
+    public String toString() {
+        return "B" + digits(birth) + "/S" + digits(survival);
+    }
+
+    private static String digits(int mask) {
+        StringBuilder digits = new StringBuilder();
+        for (int count = 0; count <= 8; count++)
+            if ((mask & 1 << count) != 0)
+                digits.append(count);
+        return digits.toString();
+    }
+}
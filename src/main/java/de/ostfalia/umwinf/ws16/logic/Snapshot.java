@@ -0,0 +1,109 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * immutable state of a {@link GameOfLife} including its analysis, taken by {@link GameOfLife#snapshot()}
+ * <p>
+ * the snapshot shares the rows of the cells with the game, which copies a row only before it changes it. Taking a
+ * snapshot only copies the row references, so it is cheap enough for every rendered frame, and it may be read by any
+ * thread while the game is advanced.
+ *
+ * @author Henrik Drefs
+ */
+public final class Snapshot {
+
+    private final GameOfLife.Storage storage;
+    /**
+     * never changed, only shared again
+     */
+    private final Field field;
+    private final long liveCount;
+    private final long countAdvances;
+    private final boolean fieldStatic;
+    private final int cyclicPeriod;
+    private final int keepTrack;
+    /**
+     * copy of the history, never changed
+     */
+    private final HashHistory history;
+
+    Snapshot(GameOfLife.Storage storage, Field field, long liveCount, long countAdvances, boolean fieldStatic,
+             int cyclicPeriod, int keepTrack, HashHistory history) {
+        this.storage = storage;
+        this.field = field;
+        this.liveCount = liveCount;
+        this.countAdvances = countAdvances;
+        this.fieldStatic = fieldStatic;
+        this.cyclicPeriod = cyclicPeriod;
+        this.keepTrack = keepTrack;
+        this.history = history;
+    }
+
+    /**
+     * @return a new game continuing from this snapshot, sharing the rows until they change
+     */
+    public GameOfLife toGame() {
+        return new GameOfLife(this);
+    }
+
+    public boolean getCell(int x, int y) {
+        return field.get(x, y);
+    }
+
+    public int getColumnCount() {
+        return field.columns;
+    }
+
+    public int getRowCount() {
+        return field.rows;
+    }
+
+    public GameOfLife.Storage getStorage() {
+        return storage;
+    }
+
+    public Rule getRule() {
+        return field.rule;
+    }
+
+    public Topology getTopology() {
+        return field.topology;
+    }
+
+    /**
+     * @return number of generations since the last edit
+     */
+    public long countAdvances() {
+        return countAdvances;
+    }
+
+    public long countAlive() {
+        return liveCount;
+    }
+
+    public boolean isFieldStatic() {
+        return fieldStatic;
+    }
+
+    /**
+     * @return period of the repetition, -1 if none was found
+     */
+    public int getCyclicPeriod() {
+        return cyclicPeriod;
+    }
+
+    public int getKeepTrack() {
+        return keepTrack;
+    }
+
+    public void forEachAlive(LifeEngine.CellVisitor visitor) {
+        field.forEachAlive(visitor);
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    HashHistory getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,215 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * snapshot of a {@link GameOfLife} including its analysis, so a game resumes exactly where it was saved: generation
+ * counter, static and cyclic state and the field hashes of the last generations for cycle detection
+ * <p>
+ * little endian header followed by the rows, each as {@code ceil(columns / 64)} longs with cell x in bit
+ * {@code x & 63} of long {@code x >> 6}. The rows are copied between the field and the file through one direct buffer
+ * of about {@link #CHUNK_SIZE} bytes, so even fields of several gigabytes are saved and loaded at disk speed. The file
+ * is not mapped, as a mapping is only released by the garbage collector and keeps the file from being renamed or
+ * deleted on Windows, e.g. by a {@code Checkpointer}.
+ *
+ * @author Henrik Drefs
+ */
+public final class SnapshotFile {
+
+    /**
+     * "GOLS"
+     */
+    private static final int MAGIC = 0x474f4c53;
+    private static final int VERSION = 1;
+    /**
+     * size of the header before the rule
+     */
+    private static final int FIXED_HEADER = 68;
+    /**
+     * bytes of an entry of the history: 2 hashes and the generation
+     */
+    private static final int HISTORY_ENTRY = 24;
+    /**
+     * bytes copied at once, at least one row
+     */
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * writes the game to a file, to be called by the thread advancing the game
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(GameOfLife gol, Path path) throws IOException {
+        write(gol.snapshot(), path);
+    }
+
+    /**
+     * writes a snapshot to a file, the game it was taken of may be advanced meanwhile
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(Snapshot snapshot, Path path) throws IOException {
+        Field field = snapshot.getField();
+        HashHistory history = snapshot.getHistory();
+        byte[] rule = snapshot.getRule().toString().getBytes(StandardCharsets.US_ASCII);
+        long historyOffset = align(FIXED_HEADER + rule.length);
+        long payload = historyOffset + (long) HISTORY_ENTRY * history.size();
+        ByteBuffer header = ByteBuffer.allocate((int) payload).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(field.columns)
+                .putInt(field.rows)
+                .putInt(snapshot.getStorage().ordinal())
+                .putInt(field.topology.ordinal())
+                .putInt(snapshot.getKeepTrack())
+                .putLong(snapshot.countAdvances())
+                .putInt(snapshot.getCyclicPeriod())
+                .putInt(snapshot.isFieldStatic() ? 1 : 0)
+                .putLong(field.hash1)
+                .putLong(field.hash2)
+                .putInt(history.size())
+                .putInt(rule.length)
+                .put(rule);
+        header.position((int) historyOffset);
+        for (int i = 0; i < history.size(); i++)
+            header.putLong(history.getHash1(i)).putLong(history.getHash2(i)).putLong(history.getGeneration(i));
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+            long rowBytes = rowBytes(field.columns);
+            int chunkRows = chunkRows(rowBytes);
+            ByteBuffer chunk = chunk(field.rows, chunkRows, rowBytes);
+            for (int from = 0; from < field.rows; from += chunkRows) {
+                int to = Math.min(field.rows, from + chunkRows);
+                chunk.clear();
+                chunk.limit((int) ((to - from) * rowBytes));
+                field.writeRows(chunk.asLongBuffer(), from, to);
+                long position = payload + from * rowBytes;
+                while (chunk.hasRemaining())
+                    channel.write(chunk, position + chunk.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * reads a game from a file, with another storage than it was saved from the field hashes are recomputed and the
+     * history for cycle detection starts over
+     *
+     * @throws IOException              if reading fails or the file is not a complete snapshot
+     * @throws IllegalArgumentException if the snapshot is invalid
+     */
+    public static GameOfLife read(Path path, GameOfLife.Storage storage) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, FIXED_HEADER);
+            if (header.getInt() != MAGIC)
+                throw new IOException("not a snapshot");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("version " + version + " not supported");
+            int columns = header.getInt();
+            int rows = header.getInt();
+            int savedStorage = header.getInt();
+            int topology = header.getInt();
+            if (topology < 0 || topology >= Topology.values().length)
+                throw new IllegalArgumentException("topology invalid");
+            int keepTrack = header.getInt();
+            long countAdvances = header.getLong();
+            int cyclicPeriod = header.getInt();
+            boolean fieldStatic = header.getInt() != 0;
+            long hash1 = header.getLong();
+            long hash2 = header.getLong();
+            int historySize = header.getInt();
+            int ruleLength = header.getInt();
+            if (historySize < 0 || historySize > Math.max(keepTrack, 1) || ruleLength < 0 || ruleLength > 32)
+                throw new IllegalArgumentException("header invalid");
+            long historyOffset = align(FIXED_HEADER + ruleLength);
+            long payload = historyOffset + (long) HISTORY_ENTRY * historySize;
+            ByteBuffer rest = read(channel, FIXED_HEADER, (int) (payload - FIXED_HEADER));
+            byte[] rule = new byte[ruleLength];
+            rest.get(rule);
+
+            long rowBytes = rowBytes(columns);
+            if (channel.size() != payload + rows * rowBytes)
+                throw new IOException("snapshot truncated");
+            GameOfLife gol = new GameOfLife(rows, columns, storage);
+            gol.setTopology(Topology.values()[topology]);
+            gol.setRule(Rule.parse(new String(rule, StandardCharsets.US_ASCII)));
+            gol.setKeepTrack(keepTrack);
+            Field field = gol.getCurrentField();
+            int chunkRows = chunkRows(rowBytes);
+            ByteBuffer chunk = chunk(rows, chunkRows, rowBytes);
+            for (int from = 0; from < rows; from += chunkRows) {
+                int to = Math.min(rows, from + chunkRows);
+                chunk.clear();
+                chunk.limit((int) ((to - from) * rowBytes));
+                long position = payload + from * rowBytes;
+                while (chunk.hasRemaining())
+                    if (channel.read(chunk, position + chunk.position()) == -1)
+                        throw new IOException("snapshot truncated");
+                chunk.flip();
+                field.readRows(chunk.asLongBuffer(), from, to);
+            }
+
+            HashHistory history = new HashHistory(keepTrack);
+            if (savedStorage == storage.ordinal()) {
+                field.hash1 = hash1;
+                field.hash2 = hash2;
+                rest.position((int) (historyOffset - FIXED_HEADER));
+                for (int i = 0; i < historySize; i++)
+                    history.add(rest.getLong(), rest.getLong(), rest.getLong());
+            } else {
+                // hashes differ between storages
+                field.rehash();
+            }
+            gol.restore(countAdvances, fieldStatic, cyclicPeriod, history);
+            return gol;
+        }
+    }
+
+    /**
+     * @return {@code length} bytes at {@code position} of the channel
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) == -1)
+                throw new IOException("snapshot truncated");
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static long rowBytes(int columns) {
+        return (long) ((columns + 63) >>> 6) << 3;
+    }
+
+    /**
+     * @return number of rows copied at once
+     */
+    private static int chunkRows(long rowBytes) {
+        return (int) Math.max(1, CHUNK_SIZE / rowBytes);
+    }
+
+    /**
+     * @return a buffer for {@code chunkRows} rows, smaller if the field has fewer rows
+     */
+    private static ByteBuffer chunk(int rows, int chunkRows, long rowBytes) {
+        return ByteBuffer.allocateDirect((int) (Math.min(rows, chunkRows) * rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
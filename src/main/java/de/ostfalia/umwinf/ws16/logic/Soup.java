@@ -0,0 +1,71 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.nio.LongBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * random soups, the same seed and density always give the same cells, independent of the storage and the thread
+ * <p>
+ * the cells are generated 64 at a time: a random word has every bit set with probability 1/2, combining random words
+ * with {@code &} and {@code |} along the binary digits of the density gives every bit the density as probability,
+ * rounded to {@link #PRECISION} binary digits. A density of 1/2 takes one random word per 64 cells, other densities
+ * at most {@link #PRECISION}. The words are written into the field row by row, so no cell is set on its own.
+ *
+ * @author Henrik Drefs
+ */
+public final class Soup {
+
+    /**
+     * binary digits of the density
+     */
+    static final int PRECISION = 32;
+
+    private Soup() {
+    }
+
+    /**
+     * replaces all cells of a game by a random soup, resets analysis and notifies the listeners once
+     *
+     * @param seed    the same seed gives the same soup
+     * @param density probability of a cell to be alive
+     * @throws IllegalArgumentException if {@code density} is not between 0 and 1
+     */
+    public static void fill(GameOfLife gol, long seed, double density) {
+        if (!(density >= 0 && density <= 1))
+            throw new IllegalArgumentException("density invalid");
+        long digits = Math.round(density * (1L << PRECISION));
+        Field field = gol.getCurrentField();
+        int words = (field.columns + 63) >>> 6;
+        long lastMask = (field.columns & 63) == 0 ? -1L : (1L << field.columns) - 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] row = new long[words];
+        LongBuffer buffer = LongBuffer.wrap(row);
+        for (int y = 0; y < field.rows; y++) {
+            for (int k = 0; k < words; k++)
+                row[k] = nextWord(random, digits);
+            row[words - 1] &= lastMask;
+            buffer.clear();
+            field.readRows(buffer, y, y + 1);
+        }
+        gol.cellsReplaced(gol.getBounds());
+    }
+
+    /**
+     * @param digits density times {@code 2^PRECISION}
+     * @return 64 cells, each alive with probability {@code digits / 2^PRECISION}
+     */
+    static long nextWord(SplittableRandom random, long digits) {
+        if (digits == 0)
+            return 0;
+        if (digits == 1L << PRECISION)
+            return -1L;
+        // digits below the lowest set one would only clear bits of the empty word
+        int digit = Long.numberOfTrailingZeros(digits);
+        long word = random.nextLong();
+        for (digit++; digit < PRECISION; digit++) {
+            long next = random.nextLong();
+            word = (digits >>> digit & 1) != 0 ? word | next : word & next;
+        }
+        return word;
+    }
+}
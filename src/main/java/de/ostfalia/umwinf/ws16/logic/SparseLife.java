@@ -0,0 +1,377 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * unbounded engine for the infinite plane, stores only tiles of 64x64 cells that contain alive cells
+ * <p>
+ * tiles are found by their packed coordinates in an open addressing table and advanced with the bitwise kernel of
+ * {@link BitField}, so memory and step cost scale with the population instead of the extent of the pattern
+ *
+ * @author Henrik Drefs
+ */
+public class SparseLife implements LifeEngine {
+
+    private static final int TILE_SIZE = 64;
+
+    /**
+     * 64x64 cells, bit {@code x} of {@code rows[y]} is the cell at ({@code x}, {@code y}) of the tile
+     */
+    private static final class Tile {
+        int tileX;
+        int tileY;
+        final long[] rows = new long[TILE_SIZE];
+        long population;
+    }
+
+    /**
+     * open addressing table of tiles, keyed by their packed coordinates
+     */
+    private static final class TileTable {
+        private static final int MIN_CAPACITY = 16;
+        /**
+         * a cleared table is replaced once it is this many times larger than needed
+         */
+        private static final int SHRINK_FACTOR = 4;
+        private long[] keys = new long[MIN_CAPACITY];
+        private Tile[] tiles = new Tile[MIN_CAPACITY];
+        private int size;
+
+        static long key(int tileX, int tileY) {
+            return (long) tileY << 32 | tileX & 0xffffffffL;
+        }
+
+        Tile get(int tileX, int tileY) {
+            long key = key(tileX, tileY);
+            int mask = keys.length - 1;
+            for (int i = (int) Diff.mix(key) & mask; tiles[i] != null; i = (i + 1) & mask)
+                if (keys[i] == key)
+                    return tiles[i];
+            return null;
+        }
+
+        /**
+         * @param tile tile whose coordinates are not contained yet
+         */
+        void put(Tile tile) {
+            if (size * 2 >= keys.length)
+                resize(keys.length * 2);
+            long key = key(tile.tileX, tile.tileY);
+            int mask = keys.length - 1;
+            int i = (int) Diff.mix(key) & mask;
+            while (tiles[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            tiles[i] = tile;
+            size++;
+        }
+
+        /**
+         * removes a contained tile, the following tiles of its probe sequence are moved back into the gap
+         */
+        void remove(Tile tile) {
+            int mask = keys.length - 1;
+            int i = (int) Diff.mix(key(tile.tileX, tile.tileY)) & mask;
+            while (tiles[i] != tile)
+                i = (i + 1) & mask;
+            for (int j = (i + 1) & mask; tiles[j] != null; j = (j + 1) & mask) {
+                // the tile at j may fill the gap unless its home slot lies between the gap and j
+                int home = (int) Diff.mix(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    tiles[i] = tiles[j];
+                    i = j;
+                }
+            }
+            tiles[i] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            Tile[] old = tiles;
+            keys = new long[capacity];
+            tiles = new Tile[capacity];
+            size = 0;
+            for (Tile tile : old)
+                if (tile != null)
+                    put(tile);
+        }
+
+        /**
+         * removes all tiles, a table much larger than needed for {@code expected} tiles is replaced by a smaller one,
+         * so a population that shrank is not scanned at the size of its peak
+         */
+        void clear(int expected) {
+            int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(expected, 1) * 2) << 1);
+            if (keys.length > capacity * SHRINK_FACTOR) {
+                keys = new long[capacity];
+                tiles = new Tile[capacity];
+            } else {
+                Arrays.fill(tiles, null);
+            }
+            size = 0;
+        }
+    }
+
+    private TileTable table = new TileTable();
+    /**
+     * table for the next generation, empty between steps
+     */
+    private TileTable nextTable = new TileTable();
+    /**
+     * tiles dropped in former steps, reused to avoid allocation
+     */
+    private final ArrayDeque<Tile> pool = new ArrayDeque<>();
+    private final Rule rule;
+    private long population = 0;
+    private long countAdvances = 0;
+
+    /**
+     * creates an empty plane for Conway's Game of Life
+     */
+    public SparseLife() {
+        this(Rule.CONWAY);
+    }
+
+    /**
+     * creates an empty plane for the given rule
+     *
+     * @throws IllegalArgumentException if dead cells without alive neighbors are born under the rule
+     */
+    public SparseLife(Rule rule) {
+        if (rule.bornWithoutNeighbors())
+            throw new IllegalArgumentException("rule invalid");
+        this.rule = rule;
+    }
+
+    @Override
+    public void setCell(boolean state, int x, int y) {
+        int tileX = x >> 6;
+        int tileY = y >> 6;
+        Tile tile = table.get(tileX, tileY);
+        if (tile == null) {
+            if (!state)
+                return;
+            tile = newTile(tileX, tileY);
+            table.put(tile);
+        }
+        long old = tile.rows[y & 63];
+        long updated = state ? old | 1L << x : old & ~(1L << x);
+        tile.rows[y & 63] = updated;
+        long delta = Long.bitCount(updated) - Long.bitCount(old);
+        tile.population += delta;
+        population += delta;
+        if (tile.population == 0) {
+            table.remove(tile);
+            pool.push(tile);
+        }
+        countAdvances = 0;
+    }
+
+    @Override
+    public boolean getCell(int x, int y) {
+        Tile tile = table.get(x >> 6, y >> 6);
+        return tile != null && (tile.rows[y & 63] & 1L << x) != 0;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void advance() {
+        countAdvances++;
+        population = 0;
+        Tile[] tiles = table.tiles;
+        for (Tile tile : tiles) {
+            if (tile == null || tile.population == 0)
+                continue;
+            long[] rows = tile.rows;
+            long columns = 0;
+            for (long row : rows)
+                columns |= row;
+            boolean west = (columns & 1) != 0;
+            boolean east = columns < 0;
+            boolean north = rows[0] != 0;
+            boolean south = rows[TILE_SIZE - 1] != 0;
+            // births can only spill into neighbor tiles touched by alive cells
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dy == -1 && !north || dy == 1 && !south)
+                    continue;
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == -1 && !west || dx == 1 && !east)
+                        continue;
+                    if (dy != 0 && dx != 0 && !corner(rows, dx, dy))
+                        continue;
+                    schedule(tile.tileX + dx, tile.tileY + dy);
+                }
+            }
+        }
+        // recycle the tiles of the old generation, about as many as the next step takes
+        for (Tile tile : tiles)
+            if (tile != null && pool.size() < nextTable.size)
+                pool.push(tile);
+        table.clear(nextTable.size);
+        TileTable swap = table;
+        table = nextTable;
+        nextTable = swap;
+    }
+
+    private static boolean corner(long[] rows, int dx, int dy) {
+        long row = rows[dy < 0 ? 0 : TILE_SIZE - 1];
+        return (row & (dx < 0 ? 1 : 1L << 63)) != 0;
+    }
+
+    /**
+     * computes the next generation of a tile into the next table, unless already done
+     */
+    private void schedule(int tileX, int tileY) {
+        if (nextTable.get(tileX, tileY) != null)
+            return;
+        Tile center = table.get(tileX, tileY);
+        Tile north = table.get(tileX, tileY - 1);
+        Tile south = table.get(tileX, tileY + 1);
+        Tile west = table.get(tileX - 1, tileY);
+        Tile east = table.get(tileX + 1, tileY);
+        Tile northWest = table.get(tileX - 1, tileY - 1);
+        Tile northEast = table.get(tileX + 1, tileY - 1);
+        Tile southWest = table.get(tileX - 1, tileY + 1);
+        Tile southEast = table.get(tileX + 1, tileY + 1);
+
+        Tile next = newTile(tileX, tileY);
+        long nextPopulation = 0;
+        for (int y = 0; y < TILE_SIZE; y++) {
+            long a, aw, ae, c, cw, ce;
+            if (y == 0) {
+                a = row(north, TILE_SIZE - 1);
+                aw = row(northWest, TILE_SIZE - 1);
+                ae = row(northEast, TILE_SIZE - 1);
+            } else {
+                a = row(center, y - 1);
+                aw = row(west, y - 1);
+                ae = row(east, y - 1);
+            }
+            if (y == TILE_SIZE - 1) {
+                c = row(south, 0);
+                cw = row(southWest, 0);
+                ce = row(southEast, 0);
+            } else {
+                c = row(center, y + 1);
+                cw = row(west, y + 1);
+                ce = row(east, y + 1);
+            }
+            long b = row(center, y);
+            long bw = row(west, y);
+            long be = row(east, y);
+            long now = BitField.nextWord(rule,
+                    a << 1 | aw >>> 63, a, a >>> 1 | ae << 63,
+                    b << 1 | bw >>> 63, b, b >>> 1 | be << 63,
+                    c << 1 | cw >>> 63, c, c >>> 1 | ce << 63);
+            next.rows[y] = now;
+            nextPopulation += Long.bitCount(now);
+        }
+        if (nextPopulation == 0) {
+            pool.push(next);
+            return;
+        }
+        next.population = nextPopulation;
+        population += nextPopulation;
+        nextTable.put(next);
+    }
+
+    private static long row(Tile tile, int y) {
+        return tile == null ? 0 : tile.rows[y];
+    }
+
+    private Tile newTile(int tileX, int tileY) {
+        Tile tile = pool.isEmpty() ? new Tile() : pool.pop();
+        tile.tileX = tileX;
+        tile.tileY = tileY;
+        Arrays.fill(tile.rows, 0);
+        tile.population = 0;
+        return tile;
+    }
+
+    @Override
+    public long countAdvances() {
+        return countAdvances;
+    }
+
+    @Override
+    public long countAlive() {
+        return population;
+    }
+
+    @Override
+    public boolean allDead() {
+        return population == 0;
+    }
+
+    @Override
+    public CellBounds getBounds() {
+        if (population == 0)
+            return null;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Tile tile : table.tiles) {
+            if (tile == null || tile.population == 0)
+                continue;
+            long columns = 0;
+            int firstRow = -1;
+            int lastRow = -1;
+            for (int y = 0; y < TILE_SIZE; y++) {
+                if (tile.rows[y] == 0)
+                    continue;
+                columns |= tile.rows[y];
+                if (firstRow == -1)
+                    firstRow = y;
+                lastRow = y;
+            }
+            int originX = tile.tileX * TILE_SIZE;
+            int originY = tile.tileY * TILE_SIZE;
+            minX = Math.min(minX, originX + Long.numberOfTrailingZeros(columns));
+            maxX = Math.max(maxX, originX + 63 - Long.numberOfLeadingZeros(columns));
+            minY = Math.min(minY, originY + firstRow);
+            maxY = Math.max(maxY, originY + lastRow);
+        }
+        return new CellBounds(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public void forEachAlive(CellVisitor visitor) {
+        forEachAlive(null, visitor);
+    }
+
+    /**
+     * calls the visitor for every alive cell within an area, only visits the tiles intersecting it
+     *
+     * @param area area to visit, {@code null} for the whole plane
+     */
+    public void forEachAlive(CellBounds area, CellVisitor visitor) {
+        for (Tile tile : table.tiles) {
+            if (tile == null || tile.population == 0)
+                continue;
+            int originX = tile.tileX * TILE_SIZE;
+            int originY = tile.tileY * TILE_SIZE;
+            if (area != null && (originX > area.getMaxX() || originX + TILE_SIZE - 1 < area.getMinX()
+                    || originY > area.getMaxY() || originY + TILE_SIZE - 1 < area.getMinY()))
+                continue;
+            for (int y = 0; y < TILE_SIZE; y++) {
+                for (long row = tile.rows[y]; row != 0; row &= row - 1) {
+                    int x = originX + Long.numberOfTrailingZeros(row);
+                    if (area == null || area.contains(x, originY + y))
+                        visitor.visit(x, originY + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of stored tiles
+     */
+    public int getTileCount() {
+        return table.size;
+    }
+}
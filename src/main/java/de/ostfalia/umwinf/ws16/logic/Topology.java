@@ -0,0 +1,25 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+/**
+ * what lies beyond the border of a bounded {@link GameOfLife}
+ *
+ * @author Henrik Drefs
+ */
+public enum Topology {
+    /**
+     * cells outside the field are dead
+     */
+    DEAD,
+    /**
+     * opposite borders are glued together
+     */
+    TORUS,
+    /**
+     * left and right border are glued together, top and bottom border are glued with reversed direction
+     */
+    KLEIN_BOTTLE,
+    /**
+     * the border mirrors the outermost cells
+     */
+    MIRROR
+}
@@ -1,15 +1,17 @@
 package de.ostfalia.umwinf.ws16.view;
 
-import de.ostfalia.umwinf.ws16.conf.Config;
+import de.ostfalia.umwinf.ws16.conf.PatternFormat;
 import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Topology;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.FileChooser;
 
-import javax.xml.bind.JAXBException;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -38,9 +40,17 @@ public class Controller implements Initializable {
     @FXML
     private TextField yField;
     @FXML
+    private ChoiceBox<Topology> topologyBox;
+    @FXML
+    private TextField ruleField;
+    @FXML
     private Label patternLabel;
     @FXML
     private Label statusLabel;
+    @FXML
+    private Slider timeline;
+    @FXML
+    private Label frameLabel;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -66,11 +76,31 @@ public class Controller implements Initializable {
             @Override
             public void handlePattern(String pattern) {
                 patternLabel.setText(pattern);
+                // the objects of a settled field may not fit
+                patternLabel.setTooltip(pattern.isEmpty() ? null : new Tooltip(pattern));
+            }
+
+            @Override
+            public void handleTimeline(int frame, int frames) {
+                timeline.setMax(Math.max(0, frames - 1));
+                if (!timeline.isValueChanging())
+                    timeline.setValue(Math.max(0, frame));
+                frameLabel.setText((frame + 1) + "/" + frames);
             }
         };
         xField.setText(String.valueOf(golGrid.getColumns()));
         yField.setText(String.valueOf(golGrid.getRows()));
         borderPane.setCenter(golGrid);
+        topologyBox.getItems().setAll(Topology.values());
+        topologyBox.setValue(golGrid.getTopology());
+        ruleField.setText(golGrid.getRule().toString());
+    }
+
+    /**
+     * releases the grid when the window is closed
+     */
+    public void dispose() {
+        golGrid.dispose();
     }
 
     @FXML
@@ -79,14 +109,18 @@ public class Controller implements Initializable {
             golGrid.stopSimulation();
             return;
         }
-        if (timePeriod <= 0)
+        if (timePeriod < 0) {
             error("Enter a valid time period!");
+            return;
+        }
         golGrid.startSimulation(timePeriod);
     }
 
     @FXML
     public void advanceOnce() {
-        golGrid.getGameOfLife().advance();
+        if (golGrid.isRunning())
+            return;
+        golGrid.advance();
     }
 
     @FXML
@@ -111,6 +145,51 @@ public class Controller implements Initializable {
         }
     }
 
+    @FXML
+    public void topologyChanged() {
+        Topology topology = topologyBox.getValue();
+        if (topology == null || topology == golGrid.getTopology())
+            return;
+        if (golGrid.isRunning()) {
+            topologyBox.setValue(golGrid.getTopology());
+            error("Stop the simulation first!");
+            return;
+        }
+        golGrid.setTopology(topology);
+    }
+
+    @FXML
+    public void applyRule() {
+        if (golGrid.isRunning()) {
+            error("Stop the simulation first!");
+            return;
+        }
+        try {
+            Rule rule = Rule.parse(ruleField.getText());
+            golGrid.setRule(rule);
+            ruleField.setText(rule.toString());
+        } catch (IllegalArgumentException e) {
+            error("Enter a valid rule like B3/S23!");
+        }
+    }
+
+    /**
+     * shows the frame selected on the timeline
+     */
+    @FXML
+    public void seek() {
+        if (golGrid.isRunning())
+            return;
+        try {
+            golGrid.showFrame((int) Math.round(timeline.getValue()));
+            fieldApplied();
+        } catch (IOException e) {
+            error("Frame couldn't be read.");
+        } catch (IndexOutOfBoundsException e) {
+            // nothing recorded yet
+        }
+    }
+
     @FXML
     public void clearField() {
         golGrid.clear();
@@ -118,6 +197,45 @@ public class Controller implements Initializable {
         patternLabel.setText("");
     }
 
+    /**
+     * adds the alive cells of a pattern file to the field
+     */
+    @FXML
+    public void insertPattern() {
+        if (golGrid.isRunning())
+            return;
+        File file = patternChooser().showOpenDialog(borderPane.getScene().getWindow());
+        if (file != null) {
+            try {
+                golGrid.stamp(PatternFormat.forFile(file).read(file, GameOfLife.Storage.BIT_PACKED));
+                statusLabel.setText("");
+            } catch (IOException e) {
+                error("Loading failed.");
+            } catch (IllegalArgumentException iae) {
+                error("File invalid.");
+            }
+        }
+    }
+
+    @FXML
+    public void randomSoup() {
+        if (golGrid.isRunning())
+            return;
+        TextInputDialog dialog = new TextInputDialog("0.5");
+        dialog.setHeaderText("Probability of a cell to be alive:");
+        dialog.showAndWait().ifPresent(text -> {
+            long seed = System.nanoTime();
+            try {
+                golGrid.soup(seed, Double.parseDouble(text));
+            } catch (IllegalArgumentException e) {
+                error("Density invalid.");
+                return;
+            }
+            statusLabel.setText("");
+            patternLabel.setText("Soup " + seed);
+        });
+    }
+
     @FXML
     public void reset() {
         golGrid.reset();
@@ -125,22 +243,42 @@ public class Controller implements Initializable {
         patternLabel.setText("");
     }
 
-    private static final FileChooser.ExtensionFilter filter = new FileChooser.ExtensionFilter("XML-files (*.xml)",
-            "*.xml");
+    /**
+     * @return a file chooser with a filter for every pattern format
+     */
+    private static FileChooser patternChooser() {
+        FileChooser fc = new FileChooser();
+        for (PatternFormat format : PatternFormat.values())
+            fc.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                    format.getDescription() + " (*." + format.getExtension() + ")", "*." + format.getExtension()));
+        fc.setInitialDirectory(new File(System.getProperty("user.dir")));
+        return fc;
+    }
 
     /**
-     * menu
+     * menu, the format is chosen by the extension of the file or else by the selected filter
      */
     @FXML
     public void save() {
-        FileChooser fc = new FileChooser();
-        fc.getExtensionFilters().add(filter);
-        fc.setInitialDirectory(new File(System.getProperty("user.dir")));
+        // the simulation thread overwrites the fields while it advances
+        if (golGrid.isRunning()) {
+            error("Stop the simulation first!");
+            return;
+        }
+        FileChooser fc = patternChooser();
         File file = fc.showSaveDialog(borderPane.getScene().getWindow());
         if (file != null) {
+            PatternFormat format;
+            try {
+                format = PatternFormat.forFile(file);
+            } catch (IllegalArgumentException e) {
+                int filter = fc.getExtensionFilters().indexOf(fc.getSelectedExtensionFilter());
+                format = PatternFormat.values()[Math.max(0, filter)];
+                file = new File(file.getPath() + "." + format.getExtension());
+            }
             try {
-                new Config(golGrid.getGameOfLife()).save(file);
-            } catch (JAXBException e) {
+                format.write(golGrid.getGameOfLife(), file);
+            } catch (IOException e) {
                 error("Couldn't save to that location.");
             }
         }
@@ -148,20 +286,17 @@ public class Controller implements Initializable {
 
     @FXML
     public void load() {
-        FileChooser fc = new FileChooser();
-        fc.getExtensionFilters().add(filter);
-        fc.setInitialDirectory(new File(System.getProperty("user.dir")));
-        File file = fc.showOpenDialog(borderPane.getScene().getWindow());
+        if (golGrid.isRunning()) {
+            error("Stop the simulation first!");
+            return;
+        }
+        File file = patternChooser().showOpenDialog(borderPane.getScene().getWindow());
         if (file != null) {
             try {
-                Config config = Config.load(file);
-                xField.setText(config.getX() + "");
-                yField.setText(config.getY() + "");
-                GameOfLife gol = new GameOfLife(config.getY(), config.getX());
-                config.getAlive()
-                        .forEach(p -> gol.setCell(true, p.getX(), p.getY()));
+                GameOfLife gol = PatternFormat.forFile(file).read(file, GameOfLife.Storage.BIT_PACKED);
                 golGrid.applyField(gol);
-            } catch (JAXBException e) {
+                fieldApplied();
+            } catch (IOException e) {
                 error("Loading failed.");
             } catch (IllegalArgumentException iae) {
                 error("File invalid.");
@@ -169,6 +304,17 @@ public class Controller implements Initializable {
         }
     }
 
+    /**
+     * shows the settings of a game applied to the grid
+     */
+    private void fieldApplied() {
+        GameOfLife gol = golGrid.getGameOfLife();
+        xField.setText(gol.getColumnCount() + "");
+        yField.setText(gol.getRowCount() + "");
+        topologyBox.setValue(gol.getTopology());
+        ruleField.setText(gol.getRule().toString());
+    }
+
     private static void error(String msg) {
         new Alert(Alert.AlertType.ERROR, msg, ButtonType.OK).show();
     }
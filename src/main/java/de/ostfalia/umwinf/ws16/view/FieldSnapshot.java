@@ -0,0 +1,54 @@
+package de.ostfalia.umwinf.ws16.view;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Snapshot;
+
+/**
+ * {@link Snapshot} of a {@link GameOfLife} handed from the simulation thread to the renderer, remembers the game it
+ * was taken of
+ *
+ * @author Henrik Drefs
+ */
+final class FieldSnapshot {
+
+    private final GameOfLife source;
+    private final Snapshot snapshot;
+
+    private FieldSnapshot(GameOfLife gol) {
+        source = gol;
+        snapshot = gol.snapshot();
+    }
+
+    /**
+     * takes a snapshot of the current cells, must be called by the thread advancing the game
+     */
+    static FieldSnapshot of(GameOfLife gol) {
+        return new FieldSnapshot(gol);
+    }
+
+    /**
+     * @return if the snapshot was taken of the given game
+     */
+    boolean isOf(GameOfLife gol) {
+        return source == gol;
+    }
+
+    int getColumns() {
+        return snapshot.getColumnCount();
+    }
+
+    int getRows() {
+        return snapshot.getRowCount();
+    }
+
+    /**
+     * @return number of generations since the last edit when the snapshot was taken
+     */
+    long getGeneration() {
+        return snapshot.countAdvances();
+    }
+
+    boolean get(int x, int y) {
+        return snapshot.getCell(x, y);
+    }
+}
@@ -1,53 +1,222 @@
 package de.ostfalia.umwinf.ws16.view;
 
+import de.ostfalia.umwinf.ws16.logic.CellBounds;
+import de.ostfalia.umwinf.ws16.logic.ChangeSet;
+import de.ostfalia.umwinf.ws16.logic.Classifier;
+import de.ostfalia.umwinf.ws16.logic.FieldListener;
 import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Metrics;
+import de.ostfalia.umwinf.ws16.logic.Recorder;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.Snapshot;
+import de.ostfalia.umwinf.ws16.logic.Soup;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.concurrent.Task;
-import javafx.event.EventHandler;
-import javafx.geometry.Bounds;
-import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 
-import java.util.Observable;
-import java.util.Observer;
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * displays a {@link GameOfLife} in a {@link GridPane} wrapped by a {@link BorderPane} using colored cells
+ * displays a {@link GameOfLife} on a {@link Canvas} wrapped by a {@link BorderPane} using colored cells
+ * <p>
+ * the simulation thread advances as fast as requested and publishes {@link FieldSnapshot}s, the renderer on the FX
+ * thread only paints the latest snapshot once per frame and drops the generations in between
+ * <p>
+ * every displayed generation is recorded by a {@link Recorder}, so earlier generations can be shown again on a
+ * timeline. Editing or continuing a shown earlier generation drops the later ones.
+ * <p>
+ * the displayed games fill {@link Metrics}, which are registered over JMX and shown in a status bar below the field
  */
-public abstract class GolGrid extends BorderPane implements Observer {
+public abstract class GolGrid extends BorderPane implements FieldListener {
 
-    private GameOfLife gol;
-    private Rectangle[][] rectangles;
-    private GridPane backingGrid;
+    private volatile GameOfLife gol;
+    private final Pane canvasPane = new Pane();
+    private final Canvas canvas = new Canvas();
+    /**
+     * current pixel layout, replaced when the field or the available size changes
+     */
+    private Frame frame;
+    /**
+     * latest snapshot not rendered yet, the simulation only takes a new one after the renderer took the last one
+     */
+    private final AtomicReference<FieldSnapshot> pending = new AtomicReference<>();
+    /**
+     * latest rendered snapshot, painted again if the layout changes
+     */
+    private FieldSnapshot shown;
+    /**
+     * canvas needs to be drawn again
+     */
+    private boolean dirty = true;
     private int columns;
     private int rows;
     /**
-     * simulation running flag
+     * topology of new fields
+     */
+    private Topology topology = Topology.DEAD;
+    /**
+     * rule of new fields
+     */
+    private Rule rule = Rule.CONWAY;
+    /**
+     * simulation running flag, cleared to stop the simulation thread
+     */
+    private volatile boolean running = false;
+    /**
+     * whether the simulation thread has not ended yet, it may still advance and record the game after
+     * {@link #running} was cleared, only used by the FX thread
+     */
+    private boolean simulating = false;
+    /**
+     * run by the FX thread once the simulation thread ended, {@code null} if none
+     */
+    private Runnable afterSimulation;
+    /**
+     * snapshot of the GoL instance when simulation is started, so it can be resetted
+     */
+    private Snapshot copy;
+    /**
+     * records the generations for the timeline, {@code null} if recording failed
+     */
+    private volatile Recorder recorder;
+    /**
+     * shown recorded frame, -1 if the latest frame is shown
+     */
+    private int seekedFrame = -1;
+    /**
+     * frame and number of frames last passed to {@link #handleTimeline(int, int)}
      */
-    private boolean running = false;
+    private int timelineFrame = -1;
+    private int timelineFrames = -1;
+
     /**
-     * copies the GoL instance when simulation is started, so it can be resetted
+     * names the objects of a settled field, only used by the simulation thread, {@code null} if not needed yet
      */
-    private GameOfLife copy;
+    private Classifier classifier;
 
-    private static final int STROKE_WIDTH = 2;
+    private final Metrics metrics = new Metrics();
+    private final Label metricsLabel = new Label();
+    /**
+     * appended to the readout, empty if the metrics are registered over JMX
+     */
+    private String jmxStatus = "";
+    private final AnimationTimer timer;
+    private final Readout readout = new Readout();
+
+    /**
+     * minimum size of a cell in pixels to show grid lines
+     */
+    private static final int MIN_GRID_CELL = 4;
+    private static final long READOUT_PERIOD = TimeUnit.MILLISECONDS.toNanos(250);
 
     public GolGrid(int columns, int rows) {
+        canvas.widthProperty().bind(canvasPane.widthProperty());
+        canvas.heightProperty().bind(canvasPane.heightProperty());
+        canvas.widthProperty().addListener(observable -> layoutFrame());
+        canvas.heightProperty().addListener(observable -> layoutFrame());
+        canvas.addEventHandler(MouseEvent.MOUSE_CLICKED, this::handleClick);
+        canvasPane.getChildren().add(canvas);
+        setCenter(canvasPane);
+        setBottom(metricsLabel);
+        try {
+            metrics.register("GolGrid@" + Integer.toHexString(System.identityHashCode(this)));
+        } catch (JMException e) {
+            jmxStatus = " | not registered over JMX: " + e.getMessage();
+            metricsLabel.setText(jmxStatus.substring(3));
+        }
+        try {
+            Path file = Files.createTempFile("gol-recording", ".bin");
+            file.toFile().deleteOnExit();
+            recorder = new Recorder(file, Recorder.DEFAULT_KEYFRAME_INTERVAL);
+        } catch (IOException e) {
+            // runs without timeline
+            recorder = null;
+        }
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                long start = System.nanoTime();
+                FieldSnapshot snapshot = pending.getAndSet(null);
+                boolean rendered = dirty;
+                if (snapshot != null && snapshot.isOf(gol)) {
+                    shown = snapshot;
+                    if (frame != null)
+                        frame.render(snapshot);
+                    dirty = true;
+                    rendered = true;
+                }
+                if (dirty)
+                    draw();
+                if (rendered)
+                    metrics.rendered(System.nanoTime() - start);
+                if (now - readout.time >= READOUT_PERIOD)
+                    metricsLabel.setText(readout.update(metrics, now) + jmxStatus);
+                Recorder recorder = GolGrid.this.recorder;
+                int frames = recorder == null ? 0 : recorder.getFrameCount();
+                int current = seekedFrame >= 0 ? seekedFrame : frames - 1;
+                if (frames != timelineFrames || current != timelineFrame) {
+                    timelineFrames = frames;
+                    timelineFrame = current;
+                    handleTimeline(current, frames);
+                }
+            }
+        };
+        timer.start();
         setFieldSize(columns, rows);
     }
 
+    /**
+     * stops the simulation, the rendering and the recording and unregisters the metrics, the grid must not be used
+     * afterwards
+     */
+    public void dispose() {
+        timer.stop();
+        try {
+            metrics.unregister();
+        } catch (JMException e) {
+            // the name is released with the JVM anyway
+        }
+        if (simulating) {
+            // the simulation thread may still record
+            stopSimulation();
+            afterSimulation = this::closeRecorder;
+            return;
+        }
+        closeRecorder();
+    }
+
     public abstract void onStart();
 
     public abstract void onStop();
 
     public abstract void handlePattern(String pattern);
 
+    /**
+     * called by the FX thread when a frame is recorded or another one is shown
+     *
+     * @param frame  shown frame, -1 if none was recorded
+     * @param frames number of recorded frames
+     */
+    public abstract void handleTimeline(int frame, int frames);
+
     /**
      * ensures that message handling is invoked by an FX Application thread
      *
@@ -60,30 +229,40 @@ public abstract class GolGrid extends BorderPane implements Observer {
     /**
      * starts a simulation that advances every {@code period}
      *
-     * @param period period between advances
+     * @param period period between advances, 0 to advance as fast as possible
      * @throws IllegalStateException    if a simulation is already running
-     * @throws IllegalArgumentException if period is invalid (less or equal to 0)
+     * @throws IllegalArgumentException if period is invalid (less than 0)
      */
     public void startSimulation(long period) {
-        if (running)
+        if (simulating)
             throw new IllegalStateException("Simulation already running");
-        if (period <= 0)
+        if (period < 0)
             throw new IllegalArgumentException("Invalid period");
-        copy = gol.clone();
+        copy = gol.snapshot();
+        continueRecording();
         handlePattern("");
-        // remove grid lines for simulation
-        for (Rectangle[] row : rectangles)
-            for (Rectangle rectangle : row)
-                rectangle.setStroke(deadColor());
         running = true;
+        simulating = true;
+        // remove grid lines for simulation
+        dirty = true;
+        // the simulation publishes snapshots itself instead of collecting the flipped cells
+        final GameOfLife gol = this.gol;
+        final Recorder recorder = this.recorder;
+        gol.removeListener(this);
         Thread t = new Thread(new Task<Void>() {
             private boolean repeating = false;
 
             @Override
             protected Void call() throws Exception {
-                Thread.sleep(period);
+                sleep(period);
                 while (running) {
                     gol.advance();
+                    if (recorder != null)
+                        recorder.record(gol);
+                    if (pending.get() == null)
+                        publish(gol);
+                    else
+                        metrics.dropped();
 
                     if (gol.allDead()) {
                         running = false;
@@ -92,25 +271,34 @@ public abstract class GolGrid extends BorderPane implements Observer {
                     }
                     if (gol.isFieldStatic()) {
                         running = false;
-                        handlePatternInternal(String.format("static (after %d)", gol.countAdvances()));
+                        handlePatternInternal(String.format("static (after %d)%s", gol.countAdvances(), objects(gol)));
                         break;
                     }
                     if (gol.isRepeating() && !repeating) {
                         repeating = true;
-                        handlePatternInternal(String.format(
-                                "cyclic (period: %d, after %d)", gol.getCyclicPeriod(), gol.countAdvances() - gol.getCyclicPeriod()));
+                        handlePatternInternal(String.format("cyclic (period: %d, after %d)%s", gol.getCyclicPeriod(),
+                                gol.countAdvances() - gol.getCyclicPeriod(), objects(gol)));
                     }
-                    Thread.sleep(period);
+                    sleep(period);
                 }
-                for (Rectangle[] row : rectangles)
-                    for (Rectangle rectangle : row)
-                        rectangle.setStroke(aliveColor());
+                publish(gol);
                 return null;
             }
 
             @Override
             protected void succeeded() {
-                onStop();
+                simulationEnded(gol);
+            }
+
+            @Override
+            protected void failed() {
+                handlePattern("failed: " + getException());
+                simulationEnded(gol);
+            }
+
+            @Override
+            protected void cancelled() {
+                simulationEnded(gol);
             }
         });
         t.setDaemon(true);
@@ -118,6 +306,49 @@ public abstract class GolGrid extends BorderPane implements Observer {
         onStart();
     }
 
+    /**
+     * called by the FX thread when the simulation thread ended, however it ended, so the grid follows edits of the
+     * game again
+     */
+    private void simulationEnded(GameOfLife game) {
+        running = false;
+        simulating = false;
+        if (gol == game)
+            game.addListener(this);
+        dirty = true;
+        onStop();
+        Runnable after = afterSimulation;
+        afterSimulation = null;
+        if (after != null)
+            after.run();
+    }
+
+    /**
+     * @return the objects of a settled field like ": 3 block, 1 blinker", empty if they cannot be classified
+     */
+    private String objects(GameOfLife gol) {
+        Rule rule = gol.getRule();
+        if (rule.bornWithoutNeighbors())
+            return "";
+        if (classifier == null || !classifier.getRule().equals(rule))
+            classifier = new Classifier(rule);
+        return ": " + Classifier.summarize(classifier.classify(gol));
+    }
+
+    private static void sleep(long period) throws InterruptedException {
+        if (period > 0)
+            Thread.sleep(period);
+    }
+
+    /**
+     * hands a snapshot of a game to the renderer, unless the game is not displayed anymore, e.g. after a reset
+     */
+    private void publish(GameOfLife game) {
+        FieldSnapshot snapshot = FieldSnapshot.of(game);
+        if (game == gol)
+            pending.set(snapshot);
+    }
+
     /**
      * stops a running simulation
      */
@@ -125,8 +356,11 @@ public abstract class GolGrid extends BorderPane implements Observer {
         running = false;
     }
 
+    /**
+     * @return whether a simulation runs or was stopped but its thread did not end yet
+     */
     public boolean isRunning() {
-        return running;
+        return simulating;
     }
 
     /**
@@ -136,7 +370,7 @@ public abstract class GolGrid extends BorderPane implements Observer {
      * @throws IllegalArgumentException x or y is invalid (less than or equal to 0)
      */
     public void setFieldSize(int x, int y) {
-        if (running)
+        if (simulating)
             throw new IllegalStateException("simulation is running");
         if (x <= 0 || y <= 0)
             throw new IllegalArgumentException("size invalid");
@@ -145,78 +379,344 @@ public abstract class GolGrid extends BorderPane implements Observer {
         applyField();
     }
 
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * changes the topology of the current and all new fields
+     *
+     * @throws IllegalStateException if a simulation is running
+     */
+    public void setTopology(Topology topology) {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        this.topology = topology;
+        if (gol != null)
+            gol.setTopology(topology);
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * changes the rule of the current and all new fields
+     *
+     * @throws IllegalStateException if a simulation is running
+     */
+    public void setRule(Rule rule) {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        this.rule = rule;
+        if (gol != null)
+            gol.setRule(rule);
+    }
+
     /**
      * clears the field
      *
      * @throws IllegalStateException if a simulation is running
      */
     public void clear() {
-        if (running)
+        if (simulating)
             throw new IllegalStateException("simulation is running");
 
         applyField();
     }
 
+    /**
+     * sets the alive cells of a pattern centered on the field, the pattern is cut where it exceeds the field
+     *
+     * @throws IllegalStateException if the simulation is running
+     */
+    public void stamp(LifeEngine pattern) {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        CellBounds bounds = pattern.getBounds();
+        if (bounds != null)
+            gol.edit(edit -> edit.stamp(pattern, (columns - bounds.getWidth()) / 2, (rows - bounds.getHeight()) / 2));
+    }
+
+    /**
+     * replaces all cells by a random soup
+     *
+     * @param seed    the same seed gives the same soup
+     * @param density probability of a cell to be alive
+     * @throws IllegalStateException    if the simulation is running
+     * @throws IllegalArgumentException if {@code density} is not between 0 and 1
+     */
+    public void soup(long seed, double density) {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        Soup.fill(gol, seed, density);
+    }
+
+    /**
+     * advances the field by one generation
+     *
+     * @throws IllegalStateException if the simulation is running, the simulation thread reuses the fields
+     */
+    public void advance() {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        gol.advance();
+    }
+
+    /**
+     * shows the field the last simulation started with, a running simulation is stopped first and the field shown
+     * once its thread ended
+     */
     public void reset() {
-        if (running)
+        if (simulating) {
             stopSimulation();
+            afterSimulation = this::reset;
+            return;
+        }
         if (copy != null)
-            applyField(copy);
+            applyField(copy.toGame());
     }
 
     /**
-     * creates a new {@link GridPane} and a new {@link GameOfLife} for the changed size
+     * displays a game instead of the current one
+     *
+     * @throws IllegalStateException if a simulation is running
      */
     public void applyField(final GameOfLife gol) {
-        backingGrid = new GridPane();
-        setCenter(backingGrid);
-        backingGrid.layoutBoundsProperty().addListener(new ChangeListener<Bounds>() {
-            @Override
-            public void changed(ObservableValue<? extends Bounds> observable, Bounds oldValue, Bounds newValue) {
-                if (newValue.getHeight() <= 0.0)
-                    return;
-
-                GolGrid.this.gol = gol;
-                gol.addObserver(GolGrid.this);
-                boolean[][] field = gol.getField();
-                rows = gol.getRowCount();
-                columns = gol.getColumnCount();
-                rectangles = new Rectangle[rows][columns];
-                final ClickHandler clickHandler = new ClickHandler();
-                double rectSize = calcRectangleSize(newValue.getHeight(), newValue.getWidth());
-                for (int i = 0; i < field.length; i++) {
-                    boolean[] row = field[i];
-                    Rectangle[] rectRow = new Rectangle[columns];
-                    for (int j = 0; j < row.length; j++) {
-                        Rectangle r = new Rectangle(rectSize, rectSize, colorOf(field[i][j]));
-                        r.setStroke(aliveColor());
-                        // save coordinates in node's id
-                        r.setId(i + ":" + j);
-                        r.addEventHandler(MouseEvent.MOUSE_CLICKED, clickHandler);
-                        rectRow[j] = r;
-                    }
-                    rectangles[i] = rectRow;
-                    backingGrid.addRow(i, (Node[]) rectRow);
-                }
-                backingGrid.layoutBoundsProperty().removeListener(this);
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        display(gol);
+        record(gol);
+    }
 
-            }
-        });
+    /**
+     * displays a recorded frame, editing or continuing it drops the later frames
+     *
+     * @throws IllegalStateException if a simulation is running
+     * @throws IOException           if the frame can't be read
+     */
+    public void showFrame(int frame) throws IOException {
+        if (simulating)
+            throw new IllegalStateException("simulation is running");
+        Recorder recorder = this.recorder;
+        if (recorder == null)
+            throw new IOException("recording failed");
+        display(recorder.seek(frame));
+        seekedFrame = frame == recorder.getFrameCount() - 1 ? -1 : frame;
+    }
+
+    /**
+     * records the current generation of a game, called by the FX thread while no simulation thread is running
+     */
+    private void record(GameOfLife game) {
+        continueRecording();
+        if (recorder != null)
+            recorder.record(game);
+    }
+
+    /**
+     * drops the frames after the shown one, so the recording continues from it
+     */
+    private void continueRecording() {
+        if (seekedFrame < 0 || recorder == null)
+            return;
+        try {
+            recorder.rewind(seekedFrame);
+        } catch (IOException e) {
+            // the frames after the shown one would follow the new ones
+            closeRecorder();
+        }
+        seekedFrame = -1;
+    }
+
+    private void closeRecorder() {
+        if (recorder == null)
+            return;
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            // recording stops anyway
+        }
+        recorder = null;
+    }
+
+    private void display(GameOfLife gol) {
+        if (this.gol != null) {
+            this.gol.removeListener(this);
+            this.gol.setMetrics(null);
+        }
+        this.gol = gol;
+        topology = gol.getTopology();
+        rule = gol.getRule();
+        rows = gol.getRowCount();
+        columns = gol.getColumnCount();
+        gol.addListener(this);
+        gol.setMetrics(metrics);
+        shown = null;
+        publish(gol);
+        layoutFrame();
     }
 
     private void applyField() {
-        applyField(new GameOfLife(rows, columns));
+        GameOfLife gol = new GameOfLife(rows, columns);
+        gol.setTopology(topology);
+        gol.setRule(rule);
+        applyField(gol);
+    }
+
+    /**
+     * fits the field into the canvas and paints the shown snapshot into a new pixel buffer
+     */
+    private void layoutFrame() {
+        if (gol == null)
+            return;
+        double cellSize = Math.min(canvas.getWidth() / columns, canvas.getHeight() / rows);
+        // whole pixels per cell where possible, so all cells have the same size
+        if (cellSize >= 1)
+            cellSize = Math.floor(cellSize);
+        int width = (int) (columns * cellSize);
+        int height = (int) (rows * cellSize);
+        if (width <= 0 || height <= 0) {
+            frame = null;
+            return;
+        }
+        frame = new Frame(columns, rows, width, height, toArgb(aliveColor()), toArgb(deadColor()));
+        if (shown != null)
+            frame.render(shown);
+        dirty = true;
     }
 
     /**
-     * @param height available height for grid
-     * @param width  available width for grid
-     * @return resulting size for each rectangle
+     * copies the pixel buffer to the canvas, grid lines are only drawn while no simulation is running
      */
-    private double calcRectangleSize(double height, double width) {
-        double maxHeight = (height - rows * STROKE_WIDTH) / rows;
-        double maxWidth = (width - columns * STROKE_WIDTH) / columns;
-        return Math.min(maxHeight, maxWidth);
+    private void draw() {
+        dirty = false;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        Frame frame = this.frame;
+        if (frame == null)
+            return;
+        frame.image.getPixelWriter().setPixels(0, 0, frame.width, frame.height, PixelFormat.getIntArgbInstance(),
+                frame.pixels, 0, frame.width);
+        gc.drawImage(frame.image, 0, 0);
+        if (simulating || frame.width < columns * MIN_GRID_CELL || frame.height < rows * MIN_GRID_CELL)
+            return;
+        gc.setStroke(aliveColor());
+        gc.setLineWidth(1);
+        for (int x = 0; x <= columns; x++)
+            gc.strokeLine(frame.columnStart[x] + 0.5, 0, frame.columnStart[x] + 0.5, frame.height);
+        for (int y = 0; y <= rows; y++)
+            gc.strokeLine(0, frame.rowStart[y] + 0.5, frame.width, frame.rowStart[y] + 0.5);
+    }
+
+    private static int toArgb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+
+    /**
+     * pixel buffer of a displayed field, the pixel at {@code px} shows column {@code px * columns / width}, so a cell
+     * covers the pixels from {@code columnStart[x]} to {@code columnStart[x + 1]} and no pixel if the field is larger
+     * than the canvas, only used by the FX thread
+     */
+    private static final class Frame {
+        final int width;
+        final int height;
+        final int[] pixels;
+        final int[] columnStart;
+        final int[] rowStart;
+        /**
+         * column shown by every pixel of a row
+         */
+        final int[] columnOf;
+        final int alive;
+        final int dead;
+        final WritableImage image;
+
+        Frame(int columns, int rows, int width, int height, int alive, int dead) {
+            this.width = width;
+            this.height = height;
+            this.alive = alive;
+            this.dead = dead;
+            pixels = new int[width * height];
+            Arrays.fill(pixels, dead);
+            columnStart = starts(columns, width);
+            rowStart = starts(rows, height);
+            columnOf = new int[width];
+            for (int px = 0; px < width; px++)
+                columnOf[px] = (int) ((long) px * columns / width);
+            image = new WritableImage(width, height);
+        }
+
+        /**
+         * @return first pixel of every cell and the total number of pixels as last entry
+         */
+        private static int[] starts(int cells, int pixels) {
+            int[] starts = new int[cells + 1];
+            for (int i = 0; i <= cells; i++)
+                starts[i] = (int) (((long) i * pixels + cells - 1) / cells);
+            return starts;
+        }
+
+        /**
+         * paints every cell row that covers pixels once and copies it to the other pixel rows of the cells
+         */
+        void render(FieldSnapshot snapshot) {
+            for (int y = 0; y < rowStart.length - 1; y++) {
+                int top = rowStart[y];
+                int bottom = rowStart[y + 1];
+                if (top == bottom)
+                    continue;
+                int offset = top * width;
+                for (int px = 0; px < width; px++)
+                    pixels[offset + px] = snapshot.get(columnOf[px], y) ? alive : dead;
+                for (int py = top + 1; py < bottom; py++)
+                    System.arraycopy(pixels, offset, pixels, py * width, width);
+            }
+        }
+    }
+
+    /**
+     * formats the metrics as averages since the last readout
+     */
+    private static final class Readout {
+        long time;
+        long generations;
+        long computeNanos;
+        long cycleDetectionNanos;
+        long notificationNanos;
+        long renderNanos;
+        long renderedFrames;
+
+        String update(Metrics metrics, long now) {
+            long generations = metrics.getGenerations();
+            long computeNanos = metrics.getComputeNanos();
+            long cycleDetectionNanos = metrics.getCycleDetectionNanos();
+            long notificationNanos = metrics.getNotificationNanos();
+            long renderNanos = metrics.getRenderNanos();
+            long renderedFrames = metrics.getRenderedFrames();
+            long advanced = Math.max(1, generations - this.generations);
+            long frames = Math.max(1, renderedFrames - this.renderedFrames);
+            String text = String.format(Locale.ROOT, "%.0f gens/s | compute %.3f ms, cycles %.3f ms, listeners %.3f ms,"
+                            + " render %.2f ms | %d alive, +%d -%d | history %d KB | dropped %d",
+                    metrics.getGenerationsPerSecond(), (computeNanos - this.computeNanos) / 1e6 / advanced,
+                    (cycleDetectionNanos - this.cycleDetectionNanos) / 1e6 / advanced,
+                    (notificationNanos - this.notificationNanos) / 1e6 / advanced,
+                    (renderNanos - this.renderNanos) / 1e6 / frames, metrics.getLiveCells(), metrics.getBirths(),
+                    metrics.getDeaths(), metrics.getHistoryBytes() >> 10, metrics.getDroppedFrames());
+            time = now;
+            this.generations = generations;
+            this.computeNanos = computeNanos;
+            this.cycleDetectionNanos = cycleDetectionNanos;
+            this.notificationNanos = notificationNanos;
+            this.renderNanos = renderNanos;
+            this.renderedFrames = renderedFrames;
+            return text;
+        }
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     public int getColumns() {
@@ -232,15 +732,16 @@ public abstract class GolGrid extends BorderPane implements Observer {
     }
 
     /**
-     * called on {@code gameOfLife.setCell(state, x, y)}, updates the color of the referenced cell
+     * called on edits and single advances while no simulation is running, records the changed field and renders it in
+     * the next frame
      *
-     * @param o   game instance
-     * @param arg changed cell arguments
+     * @param game    game instance
+     * @param changes flipped cells
      */
     @Override
-    public void update(Observable o, Object arg) {
-        GameOfLife.ObserverArgs args = (GameOfLife.ObserverArgs) arg;
-        rectangles[args.getY()][args.getX()].setFill(colorOf(args.getState()));
+    public void fieldChanged(GameOfLife game, ChangeSet changes) {
+        record(game);
+        publish(game);
     }
 
     /**
@@ -259,23 +760,15 @@ public abstract class GolGrid extends BorderPane implements Observer {
     }
 
     /**
-     * handles the toggling of cells via mouse click
+     * toggles the clicked cell
      */
-    private class ClickHandler implements EventHandler<MouseEvent> {
-        @Override
-        public void handle(MouseEvent event) {
-            // don't change field during simulation
-            if (running) {
-                return;
-            }
-            // get coordinates from the source's id
-            Rectangle rect = (Rectangle) event.getSource();
-            String[] splitId = rect.getId().split(":");
-            int i = Integer.parseInt((splitId[0]));
-            int j = Integer.parseInt(splitId[1]);
-            boolean current = gol.getCell(j, i);
-            gol.setCell(!current, j, i);
-        }
+    private void handleClick(MouseEvent event) {
+        // don't change field during simulation
+        if (simulating || frame == null || event.getX() >= frame.width || event.getY() >= frame.height)
+            return;
+        int x = (int) ((long) event.getX() * columns / frame.width);
+        int y = (int) ((long) event.getY() * rows / frame.height);
+        gol.setCell(!gol.getCell(x, y), x, y);
     }
 
 }
@@ -16,17 +16,27 @@ public class GolView extends Application {
 
     public static final int WINDOW_SIZE = 600;
 
+    private Controller controller;
+
     public static void main(String[] args) {
         launch(args);
     }
 
     @Override
     public void start(Stage stage) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/main.fxml"));
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("/main.fxml"));
+        Parent root = loader.load();
+        controller = loader.getController();
         stage.setTitle("Conway's Game Of Life");
         Scene scene = new Scene(root, WINDOW_SIZE, WINDOW_SIZE);
         scene.getStylesheets().add("/bootstrap3.css");
         stage.setScene(scene);
         stage.show();
     }
+
+    @Override
+    public void stop() {
+        if (controller != null)
+            controller.dispose();
+    }
 }
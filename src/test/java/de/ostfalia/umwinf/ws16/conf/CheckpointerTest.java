@@ -0,0 +1,152 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Soup;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static de.ostfalia.umwinf.ws16.logic.Games.assertSameGame;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * checkpoints written by a {@link Checkpointer} and the game resumed from them
+ *
+ * @author Henrik Drefs
+ */
+public class CheckpointerTest {
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsNewest() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("checkpoints");
+        List<GameOfLife> checkpointed = checkpoint(directory, 10, 3);
+        assertEquals(Arrays.asList("checkpoint-0000000007.gols", "checkpoint-0000000008.gols",
+                "checkpoint-0000000009.gols"), names(directory));
+        assertSameGame("resumed", checkpointed.get(9), Checkpointer.resume(directory, GameOfLife.Storage.BIT_PACKED));
+        // numbering continues after the kept checkpoints
+        checkpoint(directory, 1, 3);
+        assertEquals("checkpoint-0000000010.gols", names(directory).get(2));
+    }
+
+    @Test
+    public void tornNewestFallsBack() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("checkpoints");
+        List<GameOfLife> checkpointed = checkpoint(directory, 3, 3);
+        List<String> names = names(directory);
+        Path newest = directory.resolve(names.get(2));
+        byte[] bytes = Files.readAllBytes(newest);
+        Files.write(newest, Arrays.copyOf(bytes, bytes.length / 2));
+        assertSameGame("resumed", checkpointed.get(1), Checkpointer.resume(directory, GameOfLife.Storage.BIT_PACKED));
+        // nothing left to resume from
+        Files.write(directory.resolve(names.get(1)), new byte[0]);
+        Files.write(directory.resolve(names.get(0)), new byte[10]);
+        assertNull(Checkpointer.resume(directory, GameOfLife.Storage.BIT_PACKED));
+    }
+
+    @Test
+    public void temporaryFilesAreIgnored() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("checkpoints");
+        List<GameOfLife> checkpointed = checkpoint(directory, 2, 2);
+        // left behind by a crash while writing a newer checkpoint
+        Path temporary = directory.resolve("checkpoint-0000000002.gols.tmp");
+        Files.write(temporary, Files.readAllBytes(directory.resolve(names(directory).get(1))));
+        assertSameGame("resumed", checkpointed.get(1), Checkpointer.resume(directory, GameOfLife.Storage.BIT_PACKED));
+        checkpoint(directory, 1, 2);
+        assertEquals(Arrays.asList("checkpoint-0000000001.gols", "checkpoint-0000000002.gols"), names(directory));
+        // replaced by the complete checkpoint
+        assertFalse(Files.exists(temporary));
+    }
+
+    @Test
+    public void failedWriteLeavesNoCheckpoint() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("checkpoints");
+        // the temporary file can't be written where a directory is
+        Files.createDirectories(directory.resolve("checkpoint-0000000000.gols.tmp").resolve("blocked"));
+        Checkpointer checkpointer = new Checkpointer(directory, 0, 0, 1);
+        checkpointer.checkpoint(soup());
+        try {
+            checkpointer.close();
+            fail("write succeeded");
+        } catch (IOException e) {
+            assertNotNull(checkpointer.getFailure());
+        }
+        assertEquals(0, names(directory).size());
+        assertNull(Checkpointer.resume(directory, GameOfLife.Storage.BIT_PACKED));
+    }
+
+    @Test
+    public void advancedWritesEveryFewGenerations() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("checkpoints");
+        GameOfLife gol = soup();
+        try (Checkpointer checkpointer = new Checkpointer(directory, 25, 0, 100)) {
+            for (int i = 0; i < 100; i++) {
+                gol.advance();
+                checkpointer.advanced(gol);
+            }
+        }
+        // a checkpoint still being written is skipped
+        List<String> names = names(directory);
+        assertTrue(names.size() + " checkpoints", !names.isEmpty() && names.size() <= 4);
+        GameOfLife resumed = Checkpointer.resume(directory, GameOfLife.Storage.BOOLEAN);
+        assertEquals(0, resumed.countAdvances() % 25);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keepNone() throws IOException {
+        new Checkpointer(folder.getRoot().toPath(), 1, 0, 0);
+    }
+
+    /**
+     * advances a game and checkpoints it after every 10 generations
+     *
+     * @return copies of the checkpointed games
+     */
+    private static List<GameOfLife> checkpoint(Path directory, int checkpoints, int keep) throws IOException {
+        List<GameOfLife> checkpointed = new ArrayList<>();
+        GameOfLife gol = soup();
+        try (Checkpointer checkpointer = new Checkpointer(directory, 0, 0, keep)) {
+            for (int i = 0; i < checkpoints; i++) {
+                gol.advance(10);
+                checkpointer.checkpoint(gol);
+                checkpointed.add(gol.clone());
+            }
+        }
+        return checkpointed;
+    }
+
+    private static GameOfLife soup() {
+        GameOfLife gol = new GameOfLife(60, 80);
+        gol.setTopology(Topology.TORUS);
+        Soup.fill(gol, 17, 0.35);
+        return gol;
+    }
+
+    /**
+     * @return names of the complete checkpoints in a directory, sorted
+     */
+    private static List<String> names(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.gols")) {
+            for (Path path : stream)
+                names.add(path.getFileName().toString());
+        }
+        names.sort(null);
+        return names;
+    }
+}
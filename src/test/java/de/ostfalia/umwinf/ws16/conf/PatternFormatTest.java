@@ -0,0 +1,145 @@
+package de.ostfalia.umwinf.ws16.conf;
+
+import de.ostfalia.umwinf.ws16.logic.CellBounds;
+import de.ostfalia.umwinf.ws16.logic.GameOfLife;
+import de.ostfalia.umwinf.ws16.logic.Games;
+import de.ostfalia.umwinf.ws16.logic.HashLife;
+import de.ostfalia.umwinf.ws16.logic.LifeEngine;
+import de.ostfalia.umwinf.ws16.logic.Rule;
+import de.ostfalia.umwinf.ws16.logic.SparseLife;
+import de.ostfalia.umwinf.ws16.logic.Topology;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static de.ostfalia.umwinf.ws16.logic.Games.assertSameCells;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * round trips through the {@link RleFormat} and the {@link BinaryFormat}
+ *
+ * @author Henrik Drefs
+ */
+public class PatternFormatTest {
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rleRoundTrip() throws IOException {
+        Random random = new Random(15);
+        for (int trial = 0; trial < 100; trial++) {
+            GameOfLife gol = randomGame(random);
+            StringWriter out = new StringWriter();
+            RleFormat.write(gol, out);
+            GameOfLife read = RleFormat.read(new StringReader(out.toString()), GameOfLife.Storage.BIT_PACKED);
+            assertSameCells("trial " + trial, gol, read);
+            // Golly has no mirrored border
+            Topology topology = gol.getTopology() == Topology.MIRROR ? Topology.DEAD : gol.getTopology();
+            assertSame(topology, read.getTopology());
+        }
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        Random random = new Random(16);
+        for (int trial = 0; trial < 100; trial++) {
+            GameOfLife gol = randomGame(random);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryFormat.write(gol, out);
+            GameOfLife read = BinaryFormat.read(new ByteArrayInputStream(out.toByteArray()),
+                    GameOfLife.Storage.BOOLEAN);
+            assertSameCells("trial " + trial, gol, read);
+            assertSame(gol.getTopology(), read.getTopology());
+        }
+    }
+
+    @Test
+    public void filesRoundTrip() throws IOException {
+        GameOfLife gol = randomGame(new Random(17));
+        for (PatternFormat format : new PatternFormat[]{PatternFormat.RLE, PatternFormat.BINARY}) {
+            File file = folder.newFile("pattern." + format.getExtension());
+            format.write(gol, file);
+            assertSame(format, PatternFormat.forFile(file));
+            assertSameCells(format.toString(), gol, format.read(file, GameOfLife.Storage.BIT_PACKED));
+        }
+    }
+
+    @Test
+    public void rleOfUnboundedEngines() throws IOException {
+        Random random = new Random(18);
+        for (LifeEngine engine : new LifeEngine[]{new HashLife(), new SparseLife()}) {
+            Set<Long> cells = new HashSet<>();
+            for (int i = 0; i < 50; i++) {
+                int x = random.nextInt(200) - 100;
+                int y = random.nextInt(200) - 100;
+                engine.setCell(true, x, y);
+                cells.add((long) y << 32 | x & 0xffffffffL);
+            }
+            StringWriter out = new StringWriter();
+            RleFormat.write(engine, out);
+            GameOfLife read = RleFormat.read(new StringReader(out.toString()), GameOfLife.Storage.BIT_PACKED);
+            // the pattern starts at the corner of its bounds
+            CellBounds bounds = engine.getBounds();
+            assertEquals(bounds.getWidth(), read.getColumnCount());
+            assertEquals(bounds.getHeight(), read.getRowCount());
+            assertEquals(cells.size(), read.countAlive());
+            for (long cell : cells)
+                assertTrue(read.getCell((int) cell - bounds.getMinX(), (int) (cell >> 32) - bounds.getMinY()));
+        }
+    }
+
+    @Test
+    public void rleOfGolly() throws IOException {
+        String glider = "#N Glider\n#C comment\nx = 3, y = 3, rule = B3/S23:T10,10\nbo$2bo$\n3o!\n";
+        GameOfLife gol = RleFormat.read(new StringReader(glider), GameOfLife.Storage.BIT_PACKED);
+        assertEquals(10, gol.getColumnCount());
+        assertEquals(10, gol.getRowCount());
+        assertSame(Topology.TORUS, gol.getTopology());
+        assertEquals(5, gol.countAlive());
+        // centered in the field
+        assertTrue(gol.getCell(4, 3));
+        assertTrue(gol.getCell(5, 4));
+        assertTrue(gol.getCell(3, 5));
+    }
+
+    @Test
+    public void rleInvalid() throws IOException {
+        for (String pattern : new String[]{"x = 3\nbo!", "x = 2, y = 1\n3o!", "x=3,y=3,rule=B3/S23:Q3,3\no!"}) {
+            try {
+                RleFormat.read(new StringReader(pattern), GameOfLife.Storage.BIT_PACKED);
+                fail(pattern);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void binaryOfOtherFormat() throws IOException {
+        BinaryFormat.read(new ByteArrayInputStream("x = 3, y = 3\n3o!".getBytes("US-ASCII")),
+                GameOfLife.Storage.BIT_PACKED);
+    }
+
+    /**
+     * @return random game, some with a rule under which dead cells without alive neighbors are born
+     */
+    private static GameOfLife randomGame(Random random) {
+        GameOfLife gol = Games.randomGame(random);
+        if (random.nextInt(5) == 0)
+            gol.setRule(Rule.parse("B0/S8"));
+        return gol;
+    }
+}
@@ -0,0 +1,92 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * a warmed up {@link GameOfLife#advance()} must not allocate on the calling thread
+ *
+ * @author Henrik Drefs
+ */
+public class AllocationTest {
+
+    private static final int SIZE = 512;
+    private static final int WARM_UP = 2000;
+    private static final int MEASURED = 500;
+    /**
+     * measured runs, one time allocations of the JVM such as recompiling may fall into one of them
+     */
+    private static final int RUNS = 5;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void sequential() {
+        assertAllocationFree(soup());
+    }
+
+    @Test
+    public void parallel() {
+        GameOfLife gol = soup();
+        gol.setParallelism(2);
+        gol.setParallelThreshold(SIZE * SIZE / 8);
+        assertAllocationFree(gol);
+    }
+
+    @Test
+    public void withListener() {
+        GameOfLife gol = soup();
+        gol.addListener((game, changes) -> {
+        });
+        assertAllocationFree(gol);
+    }
+
+    @Test
+    public void parallelWithListener() {
+        GameOfLife gol = soup();
+        gol.setParallelism(2);
+        gol.setParallelThreshold(SIZE * SIZE / 8);
+        gol.addListener((game, changes) -> {
+        });
+        assertAllocationFree(gol);
+    }
+
+    private static GameOfLife soup() {
+        GameOfLife gol = new GameOfLife(SIZE, SIZE, GameOfLife.Storage.BIT_PACKED);
+        gol.setTopology(Topology.TORUS);
+        Random random = new Random(13);
+        for (int i = 0; i < SIZE * SIZE / 3; i++)
+            gol.setCell(true, random.nextInt(SIZE), random.nextInt(SIZE));
+        return gol;
+    }
+
+    private void assertAllocationFree(GameOfLife gol) {
+        for (int i = 0; i < WARM_UP; i++)
+            gol.advance();
+        long thread = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        // allocating steps allocate in every run
+        for (int run = 0; run < RUNS && allocated > 0; run++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MEASURED; i++)
+                gol.advance();
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(thread) - before);
+        }
+        assertEquals("bytes allocated by " + MEASURED + " generations", 0, allocated);
+    }
+}
@@ -0,0 +1,58 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import static de.ostfalia.umwinf.ws16.logic.Games.assertSameGame;
+
+/**
+ * the word-parallel kernel of {@link BitField} against the cell by cell {@link BooleanField}
+ *
+ * @author Henrik Drefs
+ */
+public class BitFieldTest {
+
+    /**
+     * single cells, widths around a word boundary and tall or wide fields
+     */
+    private static final int[][] SIZES = {{1, 1}, {3, 5}, {17, 63}, {20, 64}, {33, 65}, {50, 129}, {7, 200}, {130, 3}};
+
+    @Test
+    public void advanceMatchesBooleanField() {
+        long seed = 1;
+        for (int[] size : SIZES) {
+            for (double density : new double[]{0.1, 0.35, 0.7}) {
+                GameOfLife expected = new GameOfLife(size[0], size[1], GameOfLife.Storage.BOOLEAN);
+                GameOfLife actual = new GameOfLife(size[0], size[1], GameOfLife.Storage.BIT_PACKED);
+                Soup.fill(expected, seed, density);
+                Soup.fill(actual, seed, density);
+                seed++;
+                assertSameGame(size[0] + "x" + size[1] + " initial", expected, actual);
+                for (int generation = 1; generation <= 300; generation++) {
+                    expected.advance();
+                    actual.advance();
+                    assertSameGame(size[0] + "x" + size[1] + " generation " + generation, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void editsMatchBooleanField() {
+        GameOfLife expected = new GameOfLife(40, 70, GameOfLife.Storage.BOOLEAN);
+        GameOfLife actual = new GameOfLife(40, 70, GameOfLife.Storage.BIT_PACKED);
+        Soup.fill(expected, 7, 0.4);
+        Soup.fill(actual, 7, 0.4);
+        for (int generation = 0; generation < 50; generation++) {
+            // toggle a cell on both sides of the word boundary between advances
+            int y = generation % 40;
+            for (int x : new int[]{0, 63, 64, 69}) {
+                boolean state = !expected.getCell(x, y);
+                expected.setCell(state, x, y);
+                actual.setCell(state, x, y);
+            }
+            expected.advance();
+            actual.advance();
+            assertSameGame("generation " + generation, expected, actual);
+        }
+    }
+}
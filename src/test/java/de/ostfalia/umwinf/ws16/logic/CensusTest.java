@@ -0,0 +1,186 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * counts of a {@link Census} against a map, across reopening, compaction, damaged files and merging
+ *
+ * @author Henrik Drefs
+ */
+public class CensusTest {
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void countsSurviveCompaction() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(25);
+        long largest = 0;
+        try (Census census = new Census(file)) {
+            // many small flushes grow the log until it is compacted
+            for (int flush = 0; flush < 100; flush++) {
+                for (int i = 0; i < 2000; i++)
+                    add(census, expected, (long) (Math.abs(random.nextGaussian()) * 1000));
+                census.flush();
+                largest = Math.max(largest, Files.size(file));
+            }
+            assertTrue("compacted", Files.size(file) < largest);
+            assertCounts(census, expected);
+        }
+        try (Census census = new Census(file)) {
+            assertCounts(census, expected);
+            census.compact();
+            assertCounts(census, expected);
+        }
+        try (Census census = new Census(file)) {
+            assertCounts(census, expected);
+        }
+    }
+
+    @Test
+    public void tornTailIsDropped() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        Map<Long, Long> expected = new HashMap<>();
+        try (Census census = new Census(file)) {
+            for (long object = 0; object < 100; object++)
+                add(census, expected, object);
+        }
+        long size = Files.size(file);
+        // half a count record of a crashed run
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{2, 24, 0, 0, 0, 1, 2, 3}));
+        }
+        try (Census census = new Census(file)) {
+            assertCounts(census, expected);
+        }
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    public void damagedRecordIsDropped() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        Map<Long, Long> expected = new HashMap<>();
+        try (Census census = new Census(file)) {
+            add(census, expected, 1);
+        }
+        try (Census census = new Census(file)) {
+            // appends a count record only, the object is known
+            census.add(classification(1));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x55}), size - 1);
+        }
+        try (Census census = new Census(file)) {
+            assertCounts(census, expected);
+        }
+    }
+
+    @Test
+    public void mergeAddsCounts() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        Path merged = folder.getRoot().toPath().resolve("merged.golc");
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(26);
+        try (Census census = new Census(file)) {
+            for (int i = 0; i < 10000; i++)
+                add(census, expected, random.nextInt(500));
+        }
+        try (Census census = new Census(merged)) {
+            census.add(classification(1000));
+            census.merge(file);
+            census.merge(file);
+        }
+        Map<Long, Long> doubled = new HashMap<>();
+        expected.forEach((object, count) -> doubled.put(object, 2 * count));
+        doubled.put(1000L, 1L);
+        try (Census census = new Census(merged)) {
+            assertCounts(census, doubled);
+        }
+    }
+
+    @Test
+    public void orientationsAreOneObject() throws IOException {
+        // every orientation of a glider and both of a blinker, far enough apart not to interact
+        GameOfLife gol = new GameOfLife(64, 96);
+        for (int orientation = 0; orientation < 8; orientation++)
+            ClassifierTest.place(ClassifierTest.GLIDER, orientation, 8 + orientation % 4 * 16, 8 + orientation / 4 * 16,
+                    gol);
+        ClassifierTest.place("ooo", 0, 10, 50, gol);
+        ClassifierTest.place("ooo", 4, 30, 50, gol);
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        Classifier classifier = new Classifier(Rule.CONWAY);
+        try (Census census = new Census(file)) {
+            for (Component component : classifier.classify(gol))
+                census.add(component.getClassification());
+        }
+        try (Census census = new Census(file)) {
+            assertEquals(2, census.size());
+            assertEquals(10, census.countObjects());
+            Census.Entry glider = census.getEntries().get(0);
+            assertEquals(8, glider.getCount());
+            assertEquals(2, census.getEntries().get(1).getCount());
+            GameOfLife pattern = ClassifierTest.place(census.getPattern(glider), 0, 30, 30, new GameOfLife(64, 64));
+            List<Component> components = classifier.classify(pattern);
+            assertEquals(1, components.size());
+            assertEquals("glider", components.get(0).getClassification().getName());
+            assertEquals(glider.getHash1(), components.get(0).getClassification().getSymmetricHash1());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeWithItself() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("census.golc");
+        try (Census census = new Census(file)) {
+            census.add(classification(1));
+            census.flush();
+            census.merge(file);
+        }
+    }
+
+    private static void add(Census census, Map<Long, Long> expected, long object) throws IOException {
+        census.add(classification(object));
+        expected.merge(object, 1L, Long::sum);
+    }
+
+    /**
+     * @return still life with hashes and cells derived from {@code object}
+     */
+    private static Classification classification(long object) {
+        return new Classification(Classification.Kind.STILL_LIFE, 1, 0, 0, 1, object, object, object * 31 + 7,
+                object ^ 0x55, pattern(object), null);
+    }
+
+    private static String pattern(long object) {
+        return object % 5 == 0 ? "o$o" : "o";
+    }
+
+    private static void assertCounts(Census census, Map<Long, Long> expected) throws IOException {
+        assertEquals(expected.size(), census.size());
+        long total = 0;
+        for (Census.Entry entry : census.getEntries()) {
+            long object = (entry.getHash1() - 7) / 31;
+            assertEquals("count of " + object, expected.get(object), Long.valueOf(entry.getCount()));
+            assertEquals(pattern(object), census.getPattern(entry));
+            total += entry.getCount();
+        }
+        assertEquals(total, census.countObjects());
+    }
+}
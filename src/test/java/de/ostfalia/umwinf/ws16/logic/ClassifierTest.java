@@ -0,0 +1,154 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * groups and classifications of known objects found by a {@link Classifier}
+ *
+ * @author Henrik Drefs
+ */
+public class ClassifierTest {
+
+    static final String GLIDER = ".o.$..o$ooo";
+    private static final String LIGHTWEIGHT_SPACESHIP = ".o..o$o....$o...o$oooo.";
+    private static final String GLIDER_GUN = "........................o...........$"
+            + "......................o.o...........$............oo......oo............oo$"
+            + "...........o...o....oo............oo$oo........o.....o...oo..............$"
+            + "oo........o...o.oo....o.o...........$..........o.....o.......o...........$"
+            + "...........o...o....................$............oo......................";
+
+    @Test
+    public void gliderInEveryOrientationAndPhase() {
+        Classifier classifier = new Classifier(Rule.CONWAY);
+        Long symmetricHash = null;
+        for (int orientation = 0; orientation < 8; orientation++) {
+            GameOfLife gol = place(GLIDER, orientation, 30, 30, new GameOfLife(64, 64));
+            for (int phase = 0; phase < 4; phase++) {
+                String message = "orientation " + orientation + " phase " + phase;
+                Classification glider = single(message, classifier.classify(gol));
+                assertEquals(message, "glider", glider.getName());
+                assertEquals(message, Classification.Kind.SPACESHIP, glider.getKind());
+                assertEquals(message, 4, glider.getPeriod());
+                assertEquals(message, 1, Math.abs(glider.getDx()));
+                assertEquals(message, 1, Math.abs(glider.getDy()));
+                if (symmetricHash == null)
+                    symmetricHash = glider.getSymmetricHash1();
+                assertEquals(message, symmetricHash.longValue(), glider.getSymmetricHash1());
+                gol.advance();
+            }
+        }
+    }
+
+    @Test
+    public void spaceshipDisplacement() {
+        Classifier classifier = new Classifier(Rule.CONWAY);
+        for (int orientation = 0; orientation < 8; orientation++) {
+            GameOfLife gol = place(LIGHTWEIGHT_SPACESHIP, orientation, 30, 30, new GameOfLife(64, 64));
+            String message = "orientation " + orientation;
+            Classification spaceship = single(message, classifier.classify(gol));
+            assertEquals(message, "lightweight spaceship", spaceship.getName());
+            assertEquals(message, 4, spaceship.getPeriod());
+            // flies along the rows unless transposed
+            boolean transposed = (orientation & 4) != 0;
+            assertEquals(message, 2, Math.abs(transposed ? spaceship.getDy() : spaceship.getDx()));
+            assertEquals(message, 0, transposed ? spaceship.getDx() : spaceship.getDy());
+            // the displacement is the distance covered in one period
+            CellBounds before = classifier.classify(gol).get(0).getBounds();
+            gol.advance(4);
+            CellBounds after = classifier.classify(gol).get(0).getBounds();
+            assertEquals(message, spaceship.getDx(), after.getMinX() - before.getMinX());
+            assertEquals(message, spaceship.getDy(), after.getMinY() - before.getMinY());
+        }
+    }
+
+    @Test
+    public void biBlockIsTwoBlocks() {
+        List<Component> components = new Classifier(Rule.CONWAY).classify(
+                place("oo.oo$oo.oo", 0, 30, 30, new GameOfLife(64, 64)));
+        assertEquals(2, components.size());
+        for (Component component : components) {
+            assertEquals("block", component.getClassification().getName());
+            assertEquals(4, component.getPopulation());
+        }
+    }
+
+    @Test
+    public void blinkerAcrossTorusBorder() {
+        GameOfLife gol = new GameOfLife(32, 32);
+        gol.setTopology(Topology.TORUS);
+        place("ooo", 0, -1, 5, gol);
+        Classifier classifier = new Classifier(Rule.CONWAY);
+        for (int phase = 0; phase < 2; phase++) {
+            Classification blinker = single("phase " + phase, classifier.classify(gol));
+            assertEquals("blinker", blinker.getName());
+            assertEquals(Classification.Kind.OSCILLATOR, blinker.getKind());
+            assertEquals(2, blinker.getPeriod());
+            gol.advance();
+        }
+    }
+
+    @Test
+    public void gunIsUnsettled() {
+        List<Component> components = new Classifier(Rule.CONWAY).classify(
+                place(GLIDER_GUN, 0, 10, 10, new GameOfLife(128, 128)));
+        int unsettled = 0;
+        for (Component component : components) {
+            Classification classification = component.getClassification();
+            // the blocks at the ends do not interact with the shuttles on their own
+            if (classification.getKind() == Classification.Kind.UNSETTLED)
+                unsettled++;
+            else
+                assertEquals("block", classification.getName());
+        }
+        assertTrue("unsettled groups", unsettled > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherRule() {
+        GameOfLife gol = new GameOfLife(8, 8);
+        gol.setRule(Rule.HIGH_LIFE);
+        new Classifier(Rule.CONWAY).classify(gol);
+    }
+
+    private static Classification single(String message, List<Component> components) {
+        assertEquals(message, 1, components.size());
+        Classification classification = components.get(0).getClassification();
+        assertNotEquals(message, Classification.Kind.UNSETTLED, classification.getKind());
+        return classification;
+    }
+
+    /**
+     * sets the cells of a pattern, wrapped into the field
+     *
+     * @param pattern     rows of {@code o} and {@code .} separated by {@code $}
+     * @param orientation bit 0 mirrors x, bit 1 mirrors y, bit 2 swaps x and y afterwards
+     * @param x           column of the first cell of the pattern
+     * @param y           row of the first cell of the pattern
+     * @return {@code gol}
+     */
+    static GameOfLife place(String pattern, int orientation, int x, int y, GameOfLife gol) {
+        String[] rows = pattern.split("\\$");
+        for (int row = 0; row < rows.length; row++) {
+            for (int column = 0; column < rows[row].length(); column++) {
+                if (rows[row].charAt(column) != 'o')
+                    continue;
+                int dx = (orientation & 1) != 0 ? -column : column;
+                int dy = (orientation & 2) != 0 ? -row : row;
+                if ((orientation & 4) != 0) {
+                    int swapped = dx;
+                    dx = dy;
+                    dy = swapped;
+                }
+                gol.setCell(true, Math.floorMod(x + dx, gol.getColumnCount()),
+                        Math.floorMod(y + dy, gol.getRowCount()));
+            }
+        }
+        return gol;
+    }
+}
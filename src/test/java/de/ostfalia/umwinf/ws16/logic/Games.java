@@ -0,0 +1,66 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * random games and comparisons of games shared by the tests
+ *
+ * @author Henrik Drefs
+ */
+public final class Games {
+
+    private static final Rule[] RULES = {Rule.CONWAY, Rule.HIGH_LIFE, Rule.DAY_AND_NIGHT, Rule.SEEDS};
+
+    private Games() {
+    }
+
+    /**
+     * @return game of random size, storage, topology and rule with a soup of random density, advanced in parallel
+     * or not
+     */
+    public static GameOfLife randomGame(Random random) {
+        GameOfLife gol = new GameOfLife(1 + random.nextInt(100), 1 + random.nextInt(200),
+                GameOfLife.Storage.values()[random.nextInt(GameOfLife.Storage.values().length)]);
+        gol.setTopology(Topology.values()[random.nextInt(Topology.values().length)]);
+        gol.setRule(RULES[random.nextInt(RULES.length)]);
+        if (random.nextBoolean()) {
+            gol.setParallelism(2);
+            gol.setParallelThreshold(64 * 32);
+        }
+        Soup.fill(gol, random.nextLong(), random.nextDouble());
+        return gol;
+    }
+
+    /**
+     * asserts the same alive cells under the same rule
+     */
+    public static void assertSameCells(String message, GameOfLife expected, GameOfLife actual) {
+        assertNotNull(message, actual);
+        assertEquals(message, expected.getRule(), actual.getRule());
+        assertArrayEquals(message, expected.getField(), actual.getField());
+        assertEquals(message, expected.countAlive(), actual.countAlive());
+    }
+
+    /**
+     * asserts the same cells, topology and generation, e.g. of a restored frame
+     */
+    public static void assertSameFrame(String message, GameOfLife expected, GameOfLife actual) {
+        assertSameCells(message, expected, actual);
+        assertSame(message, expected.getTopology(), actual.getTopology());
+        assertEquals(message, expected.countAdvances(), actual.countAdvances());
+    }
+
+    /**
+     * asserts the same frame and the same analysis of the kept history
+     */
+    public static void assertSameGame(String message, GameOfLife expected, GameOfLife actual) {
+        assertSameFrame(message, expected, actual);
+        assertEquals(message, expected.isFieldStatic(), actual.isFieldStatic());
+        assertEquals(message, expected.getCyclicPeriod(), actual.getCyclicPeriod());
+    }
+}
@@ -0,0 +1,160 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link HashLife} against a bounded {@link GameOfLife} whose border is never reached
+ *
+ * @author Henrik Drefs
+ */
+public class HashLifeTest {
+
+    /**
+     * size of the bounded reference, its center is the origin of the unbounded engine
+     */
+    static final int SIZE = 400;
+    static final int CENTER = SIZE / 2;
+
+    private static final int[][] GLIDER = {{1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2}};
+
+    @Test
+    public void stepsMatchBoundedField() {
+        for (String notation : new String[]{"B3/S23", "B36/S23", "B3678/S34678", "B2/S"}) {
+            Rule rule = Rule.parse(notation);
+            GameOfLife expected = soup(rule, 5, 40);
+            HashLife actual = new HashLife(rule);
+            copy(expected, actual);
+            for (int generation = 1; generation <= 100; generation++) {
+                expected.advance();
+                actual.advance();
+                assertEquals(rule + " generation " + generation, expected.countAlive(), actual.countAlive());
+            }
+            assertSameCells(rule.toString(), expected, actual);
+            assertEquals(100, actual.countAdvances());
+        }
+    }
+
+    @Test
+    public void jumpMatchesSteps() {
+        GameOfLife expected = soup(Rule.CONWAY, 77, 20);
+        HashLife jumping = new HashLife();
+        HashLife stepping = new HashLife();
+        copy(expected, jumping);
+        copy(expected, stepping);
+        jumping.advance(77);
+        for (int i = 0; i < 77; i++) {
+            expected.advance();
+            stepping.advance();
+        }
+        assertSameCells("jump", expected, jumping);
+        assertSameCells("steps", expected, stepping);
+        assertEquals(77, jumping.countAdvances());
+    }
+
+    @Test
+    public void garbageCollectionKeepsPattern() {
+        GameOfLife expected = soup(Rule.CONWAY, 3, 40);
+        HashLife actual = new HashLife();
+        actual.setMaxNodes(1000);
+        copy(expected, actual);
+        for (int i = 0; i < 10; i++) {
+            actual.advance(15);
+            for (int j = 0; j < 15; j++)
+                expected.advance();
+            assertSameCells("after " + actual.countAdvances(), expected, actual);
+        }
+    }
+
+    @Test
+    public void stillLifeReachesLargestGeneration() {
+        HashLife block = new HashLife();
+        block.setCell(true, 0, 0);
+        block.setCell(true, 1, 0);
+        block.setCell(true, 0, 1);
+        block.setCell(true, 1, 1);
+        block.advance(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, block.countAdvances());
+        assertEquals(4, block.countAlive());
+        assertEquals(new CellBounds(0, 0, 1, 1), block.getBounds());
+    }
+
+    @Test
+    public void universeTooLarge() {
+        HashLife glider = new HashLife();
+        for (int[] cell : GLIDER)
+            glider.setCell(true, cell[0], cell[1]);
+        try {
+            glider.advance(Long.MAX_VALUE);
+            fail("glider left the universe");
+        } catch (IllegalStateException e) {
+            // the generations advanced until then are kept
+            assertTrue(glider.countAdvances() > 1L << 60);
+            assertEquals(5, glider.countAlive());
+        }
+    }
+
+    @Test
+    public void coordinatesBeyondInt() {
+        HashLife glider = new HashLife();
+        for (int[] cell : GLIDER)
+            glider.setCell(true, cell[0], cell[1]);
+        // a glider moves one cell diagonally every 4 generations
+        glider.advance(1L << 36);
+        assertEquals(5, glider.countAlive());
+        try {
+            glider.getBounds();
+            fail("bounds beyond int");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        try {
+            glider.forEachAlive((x, y) -> fail("cell beyond int"));
+            fail("cells beyond int");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bornWithoutNeighborsUnsupported() {
+        new HashLife(Rule.parse("B0/S8"));
+    }
+
+    /**
+     * @return bounded field with a square random soup of the given width at its center
+     */
+    static GameOfLife soup(Rule rule, long seed, int width) {
+        GameOfLife square = new GameOfLife(width, width);
+        Soup.fill(square, seed, 0.4);
+        GameOfLife gol = new GameOfLife(SIZE, SIZE);
+        gol.setRule(rule);
+        square.forEachAlive((x, y) -> gol.setCell(true, x + CENTER - width / 2, y + CENTER - width / 2));
+        return gol;
+    }
+
+    static void copy(GameOfLife from, LifeEngine to) {
+        from.forEachAlive((x, y) -> to.setCell(true, x - CENTER, y - CENTER));
+    }
+
+    static void assertSameCells(String message, GameOfLife expected, LifeEngine actual) {
+        assertEquals(message, expected.countAlive(), actual.countAlive());
+        // minimum and maximum of x and y
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        expected.forEachAlive((x, y) -> {
+            assertTrue(message + " at " + x + "," + y, actual.getCell(x - CENTER, y - CENTER));
+            bounds[0] = Math.min(bounds[0], x - CENTER);
+            bounds[1] = Math.min(bounds[1], y - CENTER);
+            bounds[2] = Math.max(bounds[2], x - CENTER);
+            bounds[3] = Math.max(bounds[3], y - CENTER);
+        });
+        if (expected.allDead())
+            assertNull(message, actual.getBounds());
+        else
+            assertEquals(message, new CellBounds(bounds[0], bounds[1], bounds[2], bounds[3]), actual.getBounds());
+    }
+}
@@ -0,0 +1,96 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static de.ostfalia.umwinf.ws16.logic.Games.assertSameFrame;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * frames restored by a {@link Recorder} against copies of the recorded games
+ *
+ * @author Henrik Drefs
+ */
+public class RecorderTest {
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * advances, edits, other games and seeking back to continue from an earlier frame in random order
+     */
+    @Test
+    public void seekRestoresFrames() throws IOException {
+        Random random = new Random(18);
+        Path path = folder.getRoot().toPath().resolve("recording.bin");
+        for (int trial = 0; trial < 20; trial++) {
+            List<GameOfLife> expected = new ArrayList<>();
+            try (Recorder recorder = new Recorder(path, 1 + random.nextInt(20))) {
+                GameOfLife gol = null;
+                for (int step = 0; step < 300; step++) {
+                    int action = random.nextInt(100);
+                    if (gol == null || action < 2) {
+                        gol = Games.randomGame(random);
+                    } else if (action < 8) {
+                        gol.setCell(!gol.getCell(0, 0), random.nextInt(gol.getColumnCount()),
+                                random.nextInt(gol.getRowCount()));
+                    } else if (action < 10) {
+                        int frame = random.nextInt(recorder.getFrameCount());
+                        gol = recorder.seek(frame);
+                        assertSameFrame("seek " + frame, expected.get(frame), gol);
+                        recorder.rewind(frame);
+                        expected.subList(frame + 1, expected.size()).clear();
+                        gol.advance();
+                    } else {
+                        gol.advance();
+                    }
+                    recorder.record(gol);
+                    expected.add(gol.clone());
+                }
+                assertEquals(expected.size(), recorder.getFrameCount());
+                for (int i = 0; i < 50; i++) {
+                    int frame = random.nextInt(expected.size());
+                    assertSameFrame("trial " + trial + " frame " + frame, expected.get(frame), recorder.seek(frame));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rewindDropsLaterFrames() throws IOException {
+        GameOfLife gol = new GameOfLife(64, 100);
+        Soup.fill(gol, 18, 0.4);
+        try (Recorder recorder = new Recorder(folder.getRoot().toPath().resolve("rewind.bin"), 4)) {
+            recorder.record(gol);
+            for (int i = 0; i < 10; i++) {
+                gol.advance();
+                recorder.record(gol);
+            }
+            GameOfLife third = recorder.seek(3);
+            recorder.rewind(3);
+            assertEquals(4, recorder.getFrameCount());
+            // the continuation replaces the dropped frames
+            third.advance();
+            recorder.record(third);
+            third.setCell(true, 0, 0);
+            recorder.record(third);
+            assertEquals(6, recorder.getFrameCount());
+            assertSameFrame("continued", third, recorder.seek(5));
+            assertEquals(4, recorder.seek(4).countAdvances());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void seekUnrecorded() throws IOException {
+        try (Recorder recorder = new Recorder(folder.getRoot().toPath().resolve("empty.bin"), 1)) {
+            recorder.record(new GameOfLife(3, 3));
+            recorder.seek(1);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * parsing of {@link Rule}s, their word-parallel evaluation and both storages under rules other than Conway's
+ *
+ * @author Henrik Drefs
+ */
+public class RuleTest {
+
+    private static final String[] RULES = {"B3/S23", "B36/S23", "B3678/S34678", "B2/S", "B012/S3", "B1/S",
+            "B/S012345678", "B0/S8"};
+
+    @Test
+    public void parse() {
+        assertEquals("B3/S23", Rule.parse("B3/S23").toString());
+        assertEquals("B345/S5678", Rule.parse("b345s5678").toString());
+        assertEquals("B36/S23", Rule.parse(" 23/36 ").toString());
+        assertEquals("B2/S", Rule.SEEDS.toString());
+        assertEquals(Rule.HIGH_LIFE, Rule.parse("B63/S32"));
+        assertEquals(Rule.HIGH_LIFE.hashCode(), Rule.parse("B63/S32").hashCode());
+        assertTrue(Rule.parse("B0/S8").bornWithoutNeighbors());
+        assertFalse(Rule.CONWAY.bornWithoutNeighbors());
+    }
+
+    @Test
+    public void parseInvalid() {
+        for (String rule : new String[]{"B9/S2", "B33/S2", "x", "B3", "", "B3/S2a"}) {
+            try {
+                Rule.parse(rule);
+                fail(rule);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void nextFollowsNotation() {
+        Rule rule = Rule.parse("B36/S125");
+        for (int count = 0; count <= 8; count++) {
+            assertEquals("born " + count, count == 3 || count == 6, rule.next(false, count));
+            assertEquals("survives " + count, count == 1 || count == 2 || count == 5, rule.next(true, count));
+        }
+    }
+
+    /**
+     * every count of every rule in one word, counts of 4 to 7 encoded with either of the two bit planes for 4
+     */
+    @Test
+    public void wordMatchesCellByCell() {
+        for (String notation : RULES) {
+            Rule rule = Rule.parse(notation);
+            for (int carry = 0; carry < 2; carry++) {
+                long alive = 0, ones = 0, twos = 0, fours = 0, foursCarry = 0, expected = 0;
+                for (int bit = 0; bit < 18; bit++) {
+                    int count = bit % 9;
+                    boolean state = bit >= 9;
+                    if (state)
+                        alive |= 1L << bit;
+                    if ((count & 1) != 0)
+                        ones |= 1L << bit;
+                    if ((count & 2) != 0)
+                        twos |= 1L << bit;
+                    if (count == 8) {
+                        fours |= 1L << bit;
+                        foursCarry |= 1L << bit;
+                    } else if ((count & 4) != 0) {
+                        if (carry == 0)
+                            fours |= 1L << bit;
+                        else
+                            foursCarry |= 1L << bit;
+                    }
+                    if (rule.next(state, count))
+                        expected |= 1L << bit;
+                }
+                long mask = (1L << 18) - 1;
+                assertEquals(notation, expected, rule.next(alive, ones, twos, fours, foursCarry) & mask);
+            }
+        }
+    }
+
+    @Test
+    public void storagesAgree() {
+        Random random = new Random(14);
+        for (String notation : RULES) {
+            Rule rule = Rule.parse(notation);
+            for (Topology topology : Topology.values()) {
+                for (int trial = 0; trial < 6; trial++) {
+                    int rows = 1 + random.nextInt(80);
+                    int columns = 1 + random.nextInt(150);
+                    GameOfLife expected = new GameOfLife(rows, columns, GameOfLife.Storage.BOOLEAN);
+                    GameOfLife actual = new GameOfLife(rows, columns, GameOfLife.Storage.BIT_PACKED);
+                    for (GameOfLife gol : new GameOfLife[]{expected, actual}) {
+                        gol.setRule(rule);
+                        gol.setTopology(topology);
+                        Soup.fill(gol, trial, 0.25);
+                    }
+                    String message = rule + " " + topology + " " + rows + "x" + columns;
+                    for (int generation = 1; generation <= 60; generation++) {
+                        expected.advance();
+                        actual.advance();
+                        Games.assertSameGame(message + " generation " + generation, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static de.ostfalia.umwinf.ws16.logic.Games.assertSameGame;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * games written to and read from a {@link SnapshotFile} resume exactly where they were saved
+ *
+ * @author Henrik Drefs
+ */
+public class SnapshotFileTest {
+
+    @org.junit.Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumesWhereSaved() throws IOException {
+        Random random = new Random(16);
+        Path path = folder.getRoot().toPath().resolve("game.gols");
+        for (int trial = 0; trial < 60; trial++) {
+            GameOfLife gol = Games.randomGame(random);
+            gol.setKeepTrack(1 + random.nextInt(150));
+            gol.advance(random.nextInt(300));
+            SnapshotFile.write(gol, path);
+            for (GameOfLife.Storage readStorage : GameOfLife.Storage.values()) {
+                GameOfLife read = SnapshotFile.read(path, readStorage);
+                String message = "trial " + trial + " read as " + readStorage;
+                assertSameGame(message, gol, read);
+                assertEquals(message, gol.getKeepTrack(), read.getKeepTrack());
+                GameOfLife resumed = gol.clone();
+                resumed.advance(200);
+                read.advance(200);
+                assertArrayEquals(message, resumed.getField(), read.getField());
+                // the hashes of the history are only kept within a storage
+                if (readStorage == gol.getStorage())
+                    assertSameGame(message, resumed, read);
+            }
+        }
+    }
+
+    @Test
+    public void largerThanOneChunk() throws IOException {
+        GameOfLife gol = new GameOfLife(2500, 16384);
+        Soup.fill(gol, 16, 0.3);
+        gol.advance();
+        Path path = folder.getRoot().toPath().resolve("large.gols");
+        SnapshotFile.write(gol, path);
+        GameOfLife read = SnapshotFile.read(path, GameOfLife.Storage.BIT_PACKED);
+        assertEquals(gol.countAlive(), read.countAlive());
+        assertEquals(1, read.countAdvances());
+        // written and read through a buffer, the file is not kept open or mapped
+        Files.delete(path);
+        gol.advance();
+        read.advance();
+        assertArrayEquals(gol.getField(), read.getField());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        GameOfLife gol = new GameOfLife(30, 70);
+        Soup.fill(gol, 1, 0.5);
+        Path path = folder.getRoot().toPath().resolve("truncated.gols");
+        SnapshotFile.write(gol, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        SnapshotFile.read(path, GameOfLife.Storage.BIT_PACKED);
+    }
+
+    @Test(expected = IOException.class)
+    public void notASnapshot() throws IOException {
+        Path path = folder.newFile("pattern.gols").toPath();
+        Files.write(path, new byte[100]);
+        SnapshotFile.read(path, GameOfLife.Storage.BIT_PACKED);
+    }
+}
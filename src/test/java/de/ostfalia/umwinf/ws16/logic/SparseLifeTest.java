@@ -0,0 +1,88 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SparseLife} against a bounded {@link GameOfLife} and its tiles against a set of cells
+ *
+ * @author Henrik Drefs
+ */
+public class SparseLifeTest {
+
+    @Test
+    public void stepsMatchBoundedField() {
+        for (String notation : new String[]{"B3/S23", "B36/S23", "B3678/S34678", "B2/S"}) {
+            Rule rule = Rule.parse(notation);
+            GameOfLife expected = HashLifeTest.soup(rule, 7, 40);
+            SparseLife actual = new SparseLife(rule);
+            HashLifeTest.copy(expected, actual);
+            for (int generation = 1; generation <= 100; generation++) {
+                expected.advance();
+                actual.advance();
+                assertEquals(rule + " generation " + generation, expected.countAlive(), actual.countAlive());
+                if (generation % 25 == 0)
+                    HashLifeTest.assertSameCells(rule + " generation " + generation, expected, actual);
+            }
+            assertEquals(100, actual.countAdvances());
+        }
+    }
+
+    @Test
+    public void editsMatchSet() {
+        Random random = new Random(7);
+        SparseLife sparse = new SparseLife();
+        Set<Long> cells = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            int x = random.nextInt(2000) - 1000;
+            int y = random.nextInt(2000) - 1000;
+            // the second half only clears cells
+            boolean state = i < 50000 && random.nextInt(3) != 0;
+            sparse.setCell(state, x, y);
+            if (state)
+                cells.add(key(x, y));
+            else
+                cells.remove(key(x, y));
+            if (i % 97 == 0) {
+                x = random.nextInt(2000) - 1000;
+                y = random.nextInt(2000) - 1000;
+                assertEquals(x + "," + y, cells.contains(key(x, y)), sparse.getCell(x, y));
+            }
+        }
+        assertEquals(cells.size(), sparse.countAlive());
+        Set<Long> visited = new HashSet<>();
+        sparse.forEachAlive((x, y) -> assertTrue(visited.add(key(x, y))));
+        assertEquals(cells, visited);
+        for (long key : cells)
+            sparse.setCell(false, (int) key, (int) (key >> 32));
+        assertTrue(sparse.allDead());
+        assertEquals("tiles of cleared cells", 0, sparse.getTileCount());
+        assertNull(sparse.getBounds());
+    }
+
+    @Test
+    public void deadTilesAreDropped() {
+        SparseLife sparse = new SparseLife();
+        // single cells far apart die in the first generation
+        for (int i = 0; i < 5000; i++)
+            sparse.setCell(true, i * 200, 0);
+        // a blinker survives
+        for (int x = -500; x < -497; x++)
+            sparse.setCell(true, x, -500);
+        sparse.advance();
+        assertEquals(3, sparse.countAlive());
+        assertEquals(1, sparse.getTileCount());
+        assertEquals(new CellBounds(-499, -501, -499, -499), sparse.getBounds());
+    }
+
+    private static long key(int x, int y) {
+        return (long) y << 32 | x & 0xffffffffL;
+    }
+}
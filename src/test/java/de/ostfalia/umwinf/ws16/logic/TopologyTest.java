@@ -0,0 +1,68 @@
+package de.ostfalia.umwinf.ws16.logic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * every {@link Topology} of the bit-packed storage, sequential and parallel, against the {@link BooleanField}
+ *
+ * @author Henrik Drefs
+ */
+public class TopologyTest {
+
+    private static final int[][] GLIDER = {{1, 0}, {2, 1}, {0, 2}, {1, 2}, {2, 2}};
+
+    @Test
+    public void bitPackedMatchesBooleanField() {
+        Random random = new Random(8);
+        for (Topology topology : Topology.values()) {
+            for (int trial = 0; trial < 40; trial++) {
+                int rows = 1 + random.nextInt(trial < 20 ? 6 : 100);
+                int columns = trial % 7 == 0 ? 64 * (1 + random.nextInt(3)) : 1 + random.nextInt(trial < 20 ? 6 : 200);
+                GameOfLife expected = new GameOfLife(rows, columns, GameOfLife.Storage.BOOLEAN);
+                GameOfLife actual = new GameOfLife(rows, columns, GameOfLife.Storage.BIT_PACKED);
+                expected.setTopology(topology);
+                actual.setTopology(topology);
+                if (trial % 3 == 0) {
+                    actual.setParallelism(2);
+                    actual.setParallelThreshold(500);
+                }
+                // small patterns reach the border later, dense ones cover it from the start
+                boolean corner = trial % 2 == 0;
+                for (int y = 0; y < rows; y++) {
+                    for (int x = 0; x < columns; x++) {
+                        if (corner ? x < 8 && y < 8 && random.nextBoolean() : random.nextInt(3) == 0) {
+                            expected.setCell(true, x, y);
+                            actual.setCell(true, x, y);
+                        }
+                    }
+                }
+                String message = topology + " " + rows + "x" + columns;
+                for (int generation = 1; generation <= 200; generation++) {
+                    expected.advance();
+                    actual.advance();
+                    Games.assertSameGame(message + " generation " + generation, expected, actual);
+                }
+                actual.setParallelism(1);
+            }
+        }
+    }
+
+    @Test
+    public void gliderCirclesTorus() {
+        for (GameOfLife.Storage storage : GameOfLife.Storage.values()) {
+            GameOfLife gol = new GameOfLife(20, 20, storage);
+            gol.setTopology(Topology.TORUS);
+            for (int[] cell : GLIDER)
+                gol.setCell(true, cell[0], cell[1]);
+            boolean[][] start = gol.getField();
+            // a glider moves one cell diagonally every 4 generations
+            for (int i = 0; i < 4 * 20; i++)
+                gol.advance();
+            assertArrayEquals(storage.toString(), start, gol.getField());
+        }
+    }
+}